@@ -0,0 +1,86 @@
+package spread.jmh;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToLongFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The SpreadBenchmark benchmarks under JMH: throughput and sampled latency
+ * percentiles of every operation, for every backend and dataset; add
+ * "-prof gc" for the allocation rate. Operations that remove edges get a
+ * freshly loaded graph before each call, outside of the measured time.
+ *
+ * JMH requires benchmarks in a package, from where the classes of the
+ * default package cannot be named, so the operations are looked up once per
+ * trial through SpreadBenchmark.operations, as JDK functions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpreadQueries {
+
+    @Param({"datasets/connected_test1.mtx", "datasets/disconnected.mtx",
+        "datasets/test_graph.mtx", "datasets/socfb-American75.mtx"})
+    public String dataset;
+
+    @Param({"GraphL", "GraphM", "GraphC", "Versioned"})
+    public String backend;
+
+    @Param({"loadGraphFromDataSet", "getNeighbors", "path", "generations", "clustCoeff",
+        "clustCoeffNodes", "rNumber", "rNumberDegree", "rNumberCC", "rNumberDegCC"})
+    public String operation;
+
+    @Param("0.5")
+    public double tau;
+
+    private IntToLongFunction query;
+    private IntToLongFunction reload;
+    private boolean mutating;
+    private int call;
+
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void load() throws ReflectiveOperationException {
+        Class<?> harness = Class.forName("SpreadBenchmark");
+        Map<String, IntToLongFunction> operations = (Map<String, IntToLongFunction>) harness
+            .getMethod("operations", String.class, String.class, double.class)
+            .invoke(null, dataset, backend, tau);
+        query = operations.get(operation);
+        if (query == null) {
+            throw new IllegalArgumentException("unknown operation: " + operation);
+        }
+        reload = operations.get("reload");
+        mutating = (Boolean) harness.getMethod("mutating", String.class).invoke(null, operation);
+    }
+
+
+    @Setup(Level.Invocation)
+    public void reload() {
+        if (mutating) {
+            reload.applyAsLong(0);
+        }
+    }
+
+
+    @Benchmark
+    public long query() {
+        return query.applyAsLong(call++);
+    }
+}
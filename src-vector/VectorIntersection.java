@@ -0,0 +1,41 @@
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernel of Intersection, block-wise all-pairs comparison (Schlegel,
+ * Willhalm and Lehner 2011): a block of a is loaded into a vector and
+ * compared with every element of the current block of b, then the block
+ * with the smaller last element moves on. The elements left over after the
+ * last full blocks are merged by the scalar code.
+ *
+ * Build:  javac --add-modules jdk.incubator.vector -cp out -d out src-vector/VectorIntersection.java
+ * Run:    java --add-modules jdk.incubator.vector ...
+ */
+final class VectorIntersection implements Intersection.Kernel {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+
+    @Override
+    public int count(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo) {
+        int lanes = SPECIES.length();
+        int i = aFrom;
+        int j = bFrom;
+        int count = 0;
+        while (i + lanes <= aTo && j + lanes <= bTo) {
+            IntVector block = IntVector.fromArray(SPECIES, a, i);
+            for (int k = j; k < j + lanes; k++) {
+                count += block.eq(b[k]).trueCount();
+            }
+            int aLast = a[i + lanes - 1];
+            int bLast = b[j + lanes - 1];
+            if (aLast <= bLast) {
+                i += lanes;
+            }
+            if (bLast <= aLast) {
+                j += lanes;
+            }
+        }
+        return count + Intersection.merge(a, i, aTo, b, j, bTo);
+    }
+}
@@ -0,0 +1,313 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.IntStream;
+
+/**
+ * Asynchronous front end for the generations, path and clustCoeff queries of
+ * an InformationSpread. Queries are queued and answered in batches on an
+ * executor, each through a CompletableFuture:
+ * - identical queries that are queued or running share one future, so each
+ *   is computed once;
+ * - the generations queries of a batch are answered from spreadProfiles,
+ *   one multi-source pass per 64 distinct seeds;
+ * - the path queries of a batch with the same source share one traversal;
+ * - the clustCoeff queries of a batch run in parallel.
+ *
+ * One batch runs at a time and takes every query submitted while the
+ * previous one ran, so batches grow with the load. Results are also stored
+ * in the query cache, where the synchronous methods find them. The graph
+ * must not be modified while queries are outstanding; fork() a copy to
+ * update the graph meanwhile.
+ */
+public class AsyncSpread {
+
+    private final InformationSpread spread;
+    private final Executor executor;
+
+    // Guarded by this: every query not yet answered, and those of them that
+    // are waiting for the next batch
+    private final Map<List<Object>, CompletableFuture<Object>> outstanding =
+        new HashMap<List<Object>, CompletableFuture<Object>>();
+    private Map<List<Object>, CompletableFuture<Object>> queued =
+        new LinkedHashMap<List<Object>, CompletableFuture<Object>>();
+    private boolean draining;
+    private long batches;
+    private long coalesced;
+
+
+    /**
+     * Run the batches on the common ForkJoinPool
+     *
+     * @param spread - the loaded graph to query
+     */
+    public AsyncSpread(InformationSpread spread) {
+        this(spread, ForkJoinPool.commonPool());
+    }
+
+
+    /**
+     * @param spread   - the loaded graph to query
+     * @param executor - runs the batches; the parallel parts of a batch run
+     *                   on the common ForkJoinPool
+     */
+    public AsyncSpread(InformationSpread spread, Executor executor) {
+        this.spread = spread;
+        this.executor = executor;
+    }
+
+
+    /**
+     * Asynchronous InformationSpread.generations
+     *
+     * @param seed      - the id of the seed page
+     * @param threshold - the percentage of nodes to reach
+     * @return the number of spread levels, or -1 as generations returns it
+     */
+    public CompletableFuture<Integer> generations(int seed, double threshold) {
+        return submit(List.of("generations", seed, threshold));
+    }
+
+
+    /**
+     * Asynchronous InformationSpread.path. The collection may be shared with
+     * other callers and cannot be modified.
+     *
+     * @param source      - the id of the origin node
+     * @param destination - the id of the destination node
+     * @return the nodes to follow from source to destination
+     */
+    public CompletableFuture<Collection<Integer>> path(int source, int destination) {
+        return submit(List.of("path", source, destination));
+    }
+
+
+    /**
+     * Asynchronous InformationSpread.clustCoeff
+     *
+     * @param n the node
+     * @return the clustering coefficient of n
+     */
+    public CompletableFuture<Double> clustCoeff(int n) {
+        return submit(List.of("clustCoeff", n));
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> submit(List<Object> key) {
+        CompletableFuture<Object> future;
+        boolean start;
+        synchronized (this) {
+            future = outstanding.get(key);
+            if (future != null) {
+                coalesced++;
+                return (CompletableFuture<T>) (CompletableFuture<?>) future;
+            }
+            future = new CompletableFuture<Object>();
+            outstanding.put(key, future);
+            queued.put(key, future);
+            start = !draining;
+            draining = true;
+        }
+        if (start) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                Map<List<Object>, CompletableFuture<Object>> dropped;
+                synchronized (this) {
+                    draining = false;
+                    dropped = queued;
+                    queued = new LinkedHashMap<List<Object>, CompletableFuture<Object>>();
+                }
+                for (List<Object> k : dropped.keySet()) {
+                    complete(dropped, k, null, e);
+                }
+            }
+        }
+        return (CompletableFuture<T>) (CompletableFuture<?>) future;
+    }
+
+
+    // Run batches until no query is waiting
+    private void drain() {
+        while (true) {
+            Map<List<Object>, CompletableFuture<Object>> batch;
+            synchronized (this) {
+                if (queued.isEmpty()) {
+                    draining = false;
+                    return;
+                }
+                batch = queued;
+                queued = new LinkedHashMap<List<Object>, CompletableFuture<Object>>();
+                batches++;
+            }
+            try {
+                run(batch);
+            } catch (Throwable e) {
+                // Queries answered before the failure keep their results
+                for (List<Object> key : batch.keySet()) {
+                    complete(batch, key, null, e);
+                }
+            }
+        }
+    }
+
+
+    private void run(Map<List<Object>, CompletableFuture<Object>> batch) {
+        List<List<Object>> generations = new ArrayList<List<Object>>();
+        Map<Integer, List<List<Object>>> paths = new LinkedHashMap<Integer, List<List<Object>>>();
+        List<List<Object>> clustering = new ArrayList<List<Object>>();
+        for (List<Object> key : batch.keySet()) {
+            switch ((String) key.get(0)) {
+                case "generations":
+                    generations.add(key);
+                    break;
+                case "path":
+                    paths.computeIfAbsent((Integer) key.get(1), s -> new ArrayList<List<Object>>()).add(key);
+                    break;
+                default:
+                    clustering.add(key);
+                    break;
+            }
+        }
+        // Built here, once, so the parallel parts below only read them
+        int[][] neighbors = spread.adjacency();
+        int[][] weights = spread.weights();
+        ComponentIndex components = spread.componentIndex();
+
+        if (!generations.isEmpty()) {
+            runGenerations(batch, generations);
+        }
+        List<List<List<Object>>> sources = new ArrayList<List<List<Object>>>(paths.values());
+        IntStream.range(0, sources.size()).parallel()
+            .forEach(i -> runPaths(batch, sources.get(i), neighbors, weights, components));
+        IntStream.range(0, clustering.size()).parallel().forEach(i -> runClustCoeff(batch, clustering.get(i)));
+    }
+
+
+    private void runGenerations(Map<List<Object>, CompletableFuture<Object>> batch, List<List<Object>> keys) {
+        // Seeds whose answer needs a traversal; generations answers the
+        // others without one
+        int[] seeds = new int[keys.size()];
+        boolean[] traverse = new boolean[keys.size()];
+        int count = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            int seed = (Integer) keys.get(i).get(1);
+            double threshold = (Double) keys.get(i).get(2);
+            if (threshold > 0 && spread.isReachable(seed, threshold)) {
+                traverse[i] = true;
+                seeds[count++] = seed;
+            }
+        }
+        int[][] profiles;
+        try {
+            profiles = spread.spreadProfiles(Arrays.copyOf(seeds, count));
+        } catch (RuntimeException e) {
+            for (List<Object> key : keys) {
+                complete(batch, key, null, e);
+            }
+            return;
+        }
+
+        QueryCache cache = spread.queryCache();
+        long version = spread.graphVersion();
+        int next = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            List<Object> key = keys.get(i);
+            try {
+                int seed = (Integer) key.get(1);
+                double threshold = (Double) key.get(2);
+                if (traverse[i]) {
+                    int level = spread.spreadLevel(profiles[next++], threshold);
+                    cache.put(version, key, level);
+                    complete(batch, key, level, null);
+                } else {
+                    complete(batch, key, spread.generations(seed, threshold), null);
+                }
+            } catch (RuntimeException e) {
+                complete(batch, key, null, e);
+            }
+        }
+    }
+
+
+    // All path queries from one source
+    private void runPaths(Map<List<Object>, CompletableFuture<Object>> batch, List<List<Object>> keys,
+                          int[][] neighbors, int[][] weights, ComponentIndex components) {
+        QueryCache cache = spread.queryCache();
+        long version = spread.graphVersion();
+        int[] tree = null;
+        for (List<Object> key : keys) {
+            try {
+                int source = (Integer) key.get(1);
+                int destination = (Integer) key.get(2);
+                List<Integer> path;
+                if (components.connected(source, destination)) {
+                    if (tree == null) {
+                        tree = spread.pathTree(neighbors, weights, source);
+                    }
+                    path = InformationSpread.pathTo(tree, source, destination);
+                } else {
+                    path = new ArrayList<Integer>();
+                    path.add(source);
+                }
+                path = Collections.unmodifiableList(path);
+                cache.put(version, key, path);
+                complete(batch, key, path, null);
+            } catch (RuntimeException e) {
+                complete(batch, key, null, e);
+            }
+        }
+    }
+
+
+    private void runClustCoeff(Map<List<Object>, CompletableFuture<Object>> batch, List<Object> key) {
+        try {
+            complete(batch, key, spread.clustCoeff((Integer) key.get(1)), null);
+        } catch (RuntimeException e) {
+            complete(batch, key, null, e);
+        }
+    }
+
+
+    // Answer a query of a batch; an identical query submitted after this
+    // one was answered has its own future
+    private void complete(Map<List<Object>, CompletableFuture<Object>> batch, List<Object> key,
+                          Object value, Throwable error) {
+        CompletableFuture<Object> future = batch.get(key);
+        synchronized (this) {
+            outstanding.remove(key, future);
+        }
+        if (error == null) {
+            future.complete(value);
+        } else {
+            future.completeExceptionally(error);
+        }
+    }
+
+
+    /**
+     * @return the number of batches run so far
+     */
+    public synchronized long batches() {
+        return batches;
+    }
+
+
+    /**
+     * @return the number of queries that were answered by an identical
+     *         query already outstanding
+     */
+    public synchronized long coalesced() {
+        return coalesced;
+    }
+}
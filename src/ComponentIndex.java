@@ -0,0 +1,128 @@
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Connected components of a graph, found with a lock-free union-find that
+ * processes the nodes in parallel. Roots are always the smallest id of their
+ * tree and are linked with a compare-and-set, so concurrent unions never lose
+ * a link. Once built the index answers component queries in O(1).
+ */
+public class ComponentIndex {
+
+    private final int[] component;
+    private final int[] componentSize;
+    private final int giantSize;
+
+
+    /**
+     * Build the index for the current edges of a graph
+     *
+     * @param graph the graph, which must not change during the build
+     */
+    public ComponentIndex(Graph graph) {
+        int n = graph.nodeCount();
+        AtomicIntegerArray parent = new AtomicIntegerArray(n);
+        for (int v = 0; v < n; v++) {
+            parent.set(v, v);
+        }
+        IntStream.range(0, n).parallel().forEach(v -> {
+            for (int w : graph.neighbors(v)) {
+                if (w > v) {
+                    union(parent, v, w);
+                }
+            }
+        });
+        SpreadMetrics.count(SpreadMetrics.Counter.NEIGHBORS_CALLS, n);
+
+        // Number the components in order of their smallest node
+        component = new int[n];
+        int count = 0;
+        for (int v = 0; v < n; v++) {
+            int root = find(parent, v);
+            component[v] = root == v ? count++ : component[root];
+        }
+        componentSize = new int[count];
+        for (int v = 0; v < n; v++) {
+            componentSize[component[v]]++;
+        }
+        int giant = 0;
+        for (int size : componentSize) {
+            giant = Math.max(giant, size);
+        }
+        giantSize = giant;
+    }
+
+
+    private static int find(AtomicIntegerArray parent, int v) {
+        int p = parent.get(v);
+        while (p != v) {
+            int grandparent = parent.get(p);
+            parent.compareAndSet(v, p, grandparent); // path halving
+            v = p;
+            p = parent.get(v);
+        }
+        return v;
+    }
+
+
+    private static void union(AtomicIntegerArray parent, int v, int w) {
+        while (true) {
+            int a = find(parent, v);
+            int b = find(parent, w);
+            if (a == b) {
+                return;
+            }
+            // Link the larger root under the smaller one, retry if it was
+            // linked elsewhere in the meantime
+            int low = Math.min(a, b);
+            int high = Math.max(a, b);
+            if (parent.compareAndSet(high, high, low)) {
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * @param v the node
+     * @return the id of the component of v, components are numbered from 0
+     */
+    public int component(int v) {
+        return component[v];
+    }
+
+
+    /**
+     * @param v the node
+     * @return the number of nodes in the component of v, v included
+     */
+    public int size(int v) {
+        return componentSize[component[v]];
+    }
+
+
+    /**
+     * @param v one node
+     * @param w the other node
+     * @return true iff there is a path between v and w
+     */
+    public boolean connected(int v, int w) {
+        return component[v] == component[w];
+    }
+
+
+    /**
+     * @return the number of components, isolated nodes included
+     */
+    public int componentCount() {
+        return componentSize.length;
+    }
+
+
+    /**
+     * @return the number of nodes in the largest component
+     */
+    public int giantSize() {
+        return giantSize;
+    }
+}
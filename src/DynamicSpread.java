@@ -0,0 +1,359 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Streaming edge updates for an InformationSpread graph that keep degrees,
+ * per-node triangle counts, the average degree and R0 current. Every node
+ * keeps a hash set of its neighbors, so an update only walks the smaller of
+ * the two neighbor sets to find the triangles it creates or destroys, in
+ * O(min(deg u, deg v)) expected time. Clustering coefficients are then
+ * answered in O(1) with the same values clustCoeff computes from scratch.
+ *
+ * Updates are applied to the underlying graph through
+ * InformationSpread.addEdge/removeEdge. If the graph is changed some other
+ * way, the counts are rebuilt on the next call.
+ */
+public class DynamicSpread {
+
+    private final InformationSpread spread;
+    private NeighborSet[] neighbors;
+    private long[] triangles;
+    private long totalDegree;
+    private long syncedVersion = -1;
+
+
+    /**
+     * @param spread the loaded graph to update
+     */
+    public DynamicSpread(InformationSpread spread) {
+        this.spread = spread;
+        sync();
+    }
+
+
+    // Rebuild every count if the graph changed behind our back
+    private void sync() {
+        if (syncedVersion == spread.graphVersion()) {
+            return;
+        }
+        int[][] adjacency = spread.adjacency();
+        int n = adjacency.length;
+        neighbors = new NeighborSet[n];
+        triangles = new long[n];
+        totalDegree = 0;
+        for (int v = 0; v < n; v++) {
+            neighbors[v] = new NeighborSet(adjacency[v].length);
+            for (int w : adjacency[v]) {
+                neighbors[v].add(w);
+            }
+            totalDegree += adjacency[v].length;
+        }
+        // Every triangle of u is found twice, once from each of its two
+        // other corners
+        for (int u = 0; u < n; u++) {
+            long shared = 0;
+            for (int v : adjacency[u]) {
+                shared += Intersection.count(adjacency[u], adjacency[v]);
+            }
+            triangles[u] = shared / 2;
+        }
+        syncedVersion = spread.graphVersion();
+    }
+
+
+    private void check(int v, int w) {
+        if (v <= 0 || w <= 0 || v >= neighbors.length || w >= neighbors.length) {
+            throw new IllegalArgumentException("edge not in graph range: " + v + ", " + w);
+        }
+        if (v == w) {
+            throw new IllegalArgumentException("self-loops are not supported: " + v);
+        }
+    }
+
+
+    /**
+     * Add a contact the way loadGraphFromDataSet does: only if its weight is
+     * at least tau, stored as weight * 100
+     *
+     * @param v      - one end of the contact
+     * @param w      - the other end of the contact
+     * @param weight - the weight of the contact, in [0, 1]
+     * @return true if the contact was added
+     */
+    public boolean addContact(int v, int w, double weight) {
+        if (weight < spread.tau()) {
+            return false;
+        }
+        int multWeight = (int) (weight * 100);
+        if (multWeight == 0) {
+            return false;
+        }
+        addEdge(v, w, multWeight);
+        return true;
+    }
+
+
+    /**
+     * Add an undirected edge, or change its weight if it already exists
+     *
+     * @param v   - one end of the edge
+     * @param w   - the other end of the edge
+     * @param wgt - the weight of the edge, must not be 0
+     */
+    public void addEdge(int v, int w, int wgt) {
+        sync();
+        check(v, w);
+        if (wgt == 0) {
+            throw new IllegalArgumentException("graphs can't store a weight of 0");
+        }
+        boolean added = !neighbors[v].contains(w);
+        spread.addEdge(v, w, wgt);
+        if (added) {
+            long common = forEachCommonNeighbor(v, w, +1);
+            triangles[v] += common;
+            triangles[w] += common;
+            neighbors[v].add(w);
+            neighbors[w].add(v);
+            totalDegree += 2;
+        }
+        syncedVersion = spread.graphVersion();
+    }
+
+
+    /**
+     * Remove an undirected edge if it exists
+     *
+     * @param v - one end of the edge
+     * @param w - the other end of the edge
+     */
+    public void removeEdge(int v, int w) {
+        sync();
+        check(v, w);
+        if (!neighbors[v].contains(w)) {
+            return;
+        }
+        spread.removeEdge(v, w);
+        neighbors[v].remove(w);
+        neighbors[w].remove(v);
+        long common = forEachCommonNeighbor(v, w, -1);
+        triangles[v] -= common;
+        triangles[w] -= common;
+        totalDegree -= 2;
+        syncedVersion = spread.graphVersion();
+    }
+
+
+    // Add delta to the triangle count of every common neighbor of v and w,
+    // walking the smaller set. Returns the number of common neighbors.
+    private long forEachCommonNeighbor(int v, int w, int delta) {
+        NeighborSet small = neighbors[v];
+        NeighborSet large = neighbors[w];
+        if (small.size > large.size) {
+            NeighborSet tmp = small;
+            small = large;
+            large = tmp;
+        }
+        long common = 0;
+        for (int x : small.table) {
+            if (x != NeighborSet.EMPTY && large.contains(x)) {
+                triangles[x] += delta;
+                common++;
+            }
+        }
+        return common;
+    }
+
+
+    /**
+     * @param n the node
+     * @return the degree of the node
+     */
+    public int degree(int n) {
+        sync();
+        return neighbors[n].size;
+    }
+
+
+    /**
+     * @param n the node
+     * @return the number of triangles n belongs to
+     */
+    public long triangles(int n) {
+        sync();
+        return triangles[n];
+    }
+
+
+    /**
+     * @return the average degree, as InformationSpread.avgDegree computes it
+     */
+    public double avgDegree() {
+        sync();
+        return (double) totalDegree / (neighbors.length - 1);
+    }
+
+
+    /**
+     * @return the basic reproduction number R0 = tau * average_degree
+     */
+    public double rNumber() {
+        return spread.tau() * avgDegree();
+    }
+
+
+    /**
+     * nodes with degree 0 or 1 have a cc of 0
+     * @param n the node
+     * @return the clustering coefficient of n, or -1 if n is not in the graph
+     */
+    public double clustCoeff(int n) {
+        sync();
+        if (n <= 0 || n >= neighbors.length) {
+            return -1;
+        }
+        long degree = neighbors[n].size;
+        if (degree < 2) {
+            return 0;
+        }
+        return ((double) (2 * triangles[n])) / (degree * (degree - 1));
+    }
+
+
+    /**
+     * precision: 0.01, same selection as InformationSpread.clustCoeffNodes
+     * @param low - the lower bound (inclusive) of the cc range
+     * @param high - the upper bound (inclusive) of the cc range
+     * @return a collection of nodes with a clustering coefficient within [low, high]
+     */
+    public Collection<Integer> clustCoeffNodes(double low, double high) {
+        List<Integer> coeffs = new ArrayList<Integer>();
+        for (Integer node : spread.indices) {
+            int cc = (int) (clustCoeff(node) * 100);
+            if (cc >= ((int) (low * 100)) && cc <= ((int) (high * 100))) {
+                coeffs.add(node);
+            }
+        }
+        return coeffs;
+    }
+
+
+    /**
+     * precision: 0.01, same selection as InformationSpread.highDegLowCCNodes
+     * @param lowBoundDegree - the lower bound (inclusive) of the degree
+     * @param upBoundCC - the upper bound (inclusive) of the cc
+     * @return a collection of nodes with degree >= lowBoundDegree and
+     *  clustering coefficient <= upBoundCC
+     */
+    public Collection<Integer> highDegLowCCNodes(int lowBoundDegree, double upBoundCC) {
+        List<Integer> nodes = new ArrayList<Integer>();
+        for (Integer node : spread.indices) {
+            BigDecimal clusterCoeff = new BigDecimal(clustCoeff(node)).setScale(2, RoundingMode.DOWN);
+            if (degree(node) >= lowBoundDegree && clusterCoeff.doubleValue() <= upBoundCC) {
+                nodes.add(node);
+            }
+        }
+        return nodes;
+    }
+
+
+    /**
+     * Open addressing hash set of node ids with linear probing. Removal
+     * shifts the following entries back, so no tombstones build up. The
+     * table is kept between 1/8 and 1/2 full, so walking it costs O(size)
+     * even after many removals.
+     */
+    private static class NeighborSet {
+        static final int EMPTY = -1;
+        static final int MIN_CAPACITY = 4;
+
+        int[] table;
+        int size;
+
+
+        NeighborSet(int expected) {
+            int capacity = MIN_CAPACITY;
+            while (capacity < expected * 2) {
+                capacity <<= 1;
+            }
+            table = new int[capacity];
+            Arrays.fill(table, EMPTY);
+        }
+
+
+        private void resize(int capacity) {
+            int[] old = table;
+            table = new int[capacity];
+            Arrays.fill(table, EMPTY);
+            size = 0;
+            for (int x : old) {
+                if (x != EMPTY) {
+                    add(x);
+                }
+            }
+        }
+
+
+        private int slot(int v) {
+            return (v * 0x9E3779B9) >>> 1 & (table.length - 1);
+        }
+
+
+        boolean contains(int v) {
+            int mask = table.length - 1;
+            for (int i = slot(v); table[i] != EMPTY; i = (i + 1) & mask) {
+                if (table[i] == v) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+
+        void add(int v) {
+            if (2 * (size + 1) > table.length) {
+                resize(table.length * 2);
+            }
+            int mask = table.length - 1;
+            int i = slot(v);
+            while (table[i] != EMPTY) {
+                if (table[i] == v) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            table[i] = v;
+            size++;
+        }
+
+
+        void remove(int v) {
+            int mask = table.length - 1;
+            int i = slot(v);
+            while (table[i] != v) {
+                if (table[i] == EMPTY) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            // Move back every later entry of the probe run that may no
+            // longer be reachable from its home slot
+            int hole = i;
+            for (int j = (i + 1) & mask; table[j] != EMPTY; j = (j + 1) & mask) {
+                int home = slot(table[j]);
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    table[hole] = table[j];
+                    hole = j;
+                }
+            }
+            table[hole] = EMPTY;
+            size--;
+            if (table.length > MIN_CAPACITY && 8 * size < table.length) {
+                resize(table.length / 2);
+            }
+        }
+    }
+}
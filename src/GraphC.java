@@ -0,0 +1,413 @@
+import java.util.Arrays;
+
+/**
+ * Compressed, read-mostly adjacency list. Edges are collected per node while
+ * the graph is loaded; on the first query every neighbor list is sorted and
+ * packed into one byte array as gaps between consecutive neighbors, each
+ * written as a varint (7 bits per byte, high bit set on all but the last
+ * byte). Weights are stored as one byte per edge, which holds the weight *
+ * 100 the loader uses. Neighbor lists are decoded on the fly.
+ *
+ * On social graphs most gaps fit in one or two bytes, so an edge costs about
+ * 3 bytes instead of the 40 or so of a GraphL list node. Once packed, edges
+ * can be removed, re-added and re-weighted, which only flips a bit or a
+ * weight byte. Edges that were not loaded go to a small sorted overflow
+ * array of their node, which neighbors merges with the packed list; they
+ * cost 5 bytes each and a binary search to find.
+ *
+ * Packing is synchronized, so concurrent readers may trigger it. As with the
+ * other backends, changes must not run concurrently with anything else.
+ */
+public class GraphC
+    implements Graph
+{
+    private static final int INITIAL_PENDING = 4;
+
+    private Object[] nodeValues;
+    private int      numEdge;
+
+    // Build phase: per node, entries of (neighbor << 32 | order << 8 | weight)
+    private long[][] pending;
+    private int[]    pendingCount;
+
+    // Packed phase, published by the write of data
+    private volatile byte[] data;
+    private int[]  offset;    // start of each node's list in data
+    private int[]  firstEdge; // ordinal of each node's first edge
+    private byte[] weights;   // by edge ordinal
+    private long[] removed;   // bit set by edge ordinal
+    private int[]  removedCount;
+
+    // Edges added once packed: per node, sorted neighbors and their weights.
+    // Allocated on the first such edge.
+    private int[][]  extra;
+    private byte[][] extraWeights;
+    private int[]    extraCount;
+
+
+    /**
+     * Empty no argument constructor
+     */
+    GraphC()
+    {
+        // No real constructor needed
+    }
+
+
+    // Initialize the graph with n vertices
+    public void init(int n)
+    {
+        nodeValues = new Object[n];
+        numEdge = 0;
+        pending = new long[n][];
+        pendingCount = new int[n];
+        extra = null;
+        extraWeights = null;
+        extraCount = null;
+        data = null;
+    }
+
+
+    // Return the number of vertices
+    public int nodeCount()
+    {
+        return nodeValues.length;
+    }
+
+
+    // Return the current number of edges
+    public int edgeCount()
+    {
+        pack();
+        return numEdge;
+    }
+
+
+    // Get the value of node with index v
+    public Object getValue(int v)
+    {
+        return nodeValues[v];
+    }
+
+
+    // Set the value of node with index v
+    public void setValue(int v, Object val)
+    {
+        nodeValues[v] = val;
+    }
+
+
+    // Adds a new edge from node v to node w with weight wgt
+    public void addEdge(int v, int w, int wgt)
+    {
+        if (wgt == 0)
+            return; // Can't store weight of 0
+        if (wgt < 0 || wgt > 255)
+            throw new IllegalArgumentException("GraphC weights must fit in a byte: " + wgt);
+        if (data == null)
+        {
+            long[] entries = pending[v];
+            int count = pendingCount[v];
+            if (entries == null)
+                entries = pending[v] = new long[INITIAL_PENDING];
+            else if (count == entries.length)
+                entries = pending[v] = Arrays.copyOf(entries, 2 * count);
+            // The order breaks ties between duplicates, the last one wins
+            entries[count] = (long) w << 32 | (long) Math.min(count, 0xFFFFFF) << 8 | wgt;
+            pendingCount[v] = count + 1;
+            return;
+        }
+        int e = find(v, w);
+        if (e < 0)
+        {
+            append(v, w, wgt);
+            return;
+        }
+        weights[e] = (byte) wgt;
+        if (isRemoved(e))
+        {
+            removed[e >>> 6] &= ~(1L << e);
+            removedCount[v]--;
+            numEdge++;
+        }
+    }
+
+
+    // Get the weight value for an edge
+    public int weight(int v, int w)
+    {
+        pack();
+        int e = find(v, w);
+        if (e >= 0)
+            return isRemoved(e) ? 0 : weights[e] & 0xFF;
+        int i = findExtra(v, w);
+        return i < 0 ? 0 : extraWeights[v][i] & 0xFF;
+    }
+
+
+    // Removes the edge from the graph.
+    public void removeEdge(int v, int w)
+    {
+        pack();
+        int e = find(v, w);
+        if (e < 0)
+        {
+            removeExtra(v, w);
+            return;
+        }
+        if (isRemoved(e))
+            return;
+        removed[e >>> 6] |= 1L << e;
+        removedCount[v]++;
+        numEdge--;
+    }
+
+
+    // Returns true iff the graph has the edge
+    public boolean hasEdge(int v, int w)
+    {
+        return weight(v, w) != 0;
+    }
+
+
+    // Returns an array containing the indicies of the neighbors of v
+    public int[] neighbors(int v)
+    {
+        pack();
+        byte[] bytes = data;
+        int degree = firstEdge[v + 1] - firstEdge[v];
+        int added = extra == null ? 0 : extraCount[v];
+        int[] more = added == 0 ? null : extra[v];
+        int[] temp = new int[degree - removedCount[v] + added];
+        int cnt = 0;
+        int x = 0;
+        int pos = offset[v];
+        int w = -1;
+        for (int e = firstEdge[v]; e < firstEdge[v + 1]; e++)
+        {
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do
+            {
+                b = bytes[pos++];
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            w += gap + 1;
+            if (removedCount[v] == 0 || !isRemoved(e))
+            {
+                // Merge in the overflow, which is sorted too
+                while (x < added && more[x] < w)
+                    temp[cnt++] = more[x++];
+                temp[cnt++] = w;
+            }
+        }
+        while (x < added)
+            temp[cnt++] = more[x++];
+        return temp;
+    }
+
+
+    /**
+     * @return the bytes used by the packed neighbor lists, weights, removal
+     *         bits and overflow entries, without the per-node arrays
+     */
+    public long packedBytes()
+    {
+        pack();
+        long bytes = (long) data.length + weights.length + 8L * removed.length;
+        if (extra != null)
+        {
+            for (int[] more : extra)
+                if (more != null)
+                    bytes += 5L * more.length;
+        }
+        return bytes;
+    }
+
+
+    // Return the ordinal of edge (v, w), or -1 if it was never loaded
+    private int find(int v, int w)
+    {
+        byte[] bytes = data;
+        int pos = offset[v];
+        int u = -1;
+        for (int e = firstEdge[v]; e < firstEdge[v + 1]; e++)
+        {
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do
+            {
+                b = bytes[pos++];
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            u += gap + 1;
+            if (u >= w)
+                return u == w ? e : -1;
+        }
+        return -1;
+    }
+
+
+    private boolean isRemoved(int e)
+    {
+        return (removed[e >>> 6] & 1L << e) != 0;
+    }
+
+
+    // Return the index of w in the overflow of v, or -1
+    private int findExtra(int v, int w)
+    {
+        if (extra == null || extraCount[v] == 0)
+            return -1;
+        int i = Arrays.binarySearch(extra[v], 0, extraCount[v], w);
+        return i < 0 ? -1 : i;
+    }
+
+
+    // Add or re-weight an edge that is not in the packed lists
+    private void append(int v, int w, int wgt)
+    {
+        if (extra == null)
+        {
+            int n = nodeValues.length;
+            extra = new int[n][];
+            extraWeights = new byte[n][];
+            extraCount = new int[n];
+        }
+        int count = extraCount[v];
+        if (extra[v] == null)
+        {
+            extra[v] = new int[INITIAL_PENDING];
+            extraWeights[v] = new byte[INITIAL_PENDING];
+        }
+        else if (count == extra[v].length)
+        {
+            extra[v] = Arrays.copyOf(extra[v], 2 * count);
+            extraWeights[v] = Arrays.copyOf(extraWeights[v], 2 * count);
+        }
+        int i = Arrays.binarySearch(extra[v], 0, count, w);
+        if (i >= 0)
+        {
+            extraWeights[v][i] = (byte) wgt;
+            return;
+        }
+        i = -i - 1;
+        System.arraycopy(extra[v], i, extra[v], i + 1, count - i);
+        System.arraycopy(extraWeights[v], i, extraWeights[v], i + 1, count - i);
+        extra[v][i] = w;
+        extraWeights[v][i] = (byte) wgt;
+        extraCount[v] = count + 1;
+        numEdge++;
+    }
+
+
+    private void removeExtra(int v, int w)
+    {
+        int i = findExtra(v, w);
+        if (i < 0)
+            return;
+        int count = --extraCount[v];
+        System.arraycopy(extra[v], i + 1, extra[v], i, count - i);
+        System.arraycopy(extraWeights[v], i + 1, extraWeights[v], i, count - i);
+        numEdge--;
+    }
+
+
+    private void pack()
+    {
+        if (data == null)
+            packLoaded();
+    }
+
+
+    // Sort, deduplicate and encode the loaded edges, once. Readers can race
+    // to it, so it runs under the lock and publishes everything through the
+    // last write, to data.
+    private synchronized void packLoaded()
+    {
+        if (data != null)
+            return;
+        int n = nodeValues.length;
+        long total = 0;
+        long bytes = 0;
+        for (int v = 0; v < n; v++)
+        {
+            long[] entries = pending[v];
+            int count = pendingCount[v];
+            if (count == 0)
+                continue;
+            Arrays.sort(entries, 0, count);
+            // Keep the last entry of every run with the same neighbor
+            int kept = 0;
+            for (int i = 0; i < count; i++)
+            {
+                if (i + 1 < count && entries[i] >>> 32 == entries[i + 1] >>> 32)
+                    continue;
+                entries[kept++] = entries[i];
+            }
+            pendingCount[v] = kept;
+            total += kept;
+            int prev = -1;
+            for (int i = 0; i < kept; i++)
+            {
+                int w = (int) (entries[i] >>> 32);
+                bytes += varintLength(w - prev - 1);
+                prev = w;
+            }
+        }
+        if (total > Integer.MAX_VALUE - 8 || bytes > Integer.MAX_VALUE - 8)
+            throw new IllegalStateException("graph too large for GraphC: " + total + " edges");
+
+        byte[] packed = new byte[(int) bytes];
+        offset = new int[n + 1];
+        firstEdge = new int[n + 1];
+        weights = new byte[(int) total];
+        removed = new long[(int) ((total + 63) >>> 6)];
+        removedCount = new int[n];
+        int pos = 0;
+        int e = 0;
+        for (int v = 0; v < n; v++)
+        {
+            offset[v] = pos;
+            firstEdge[v] = e;
+            int prev = -1;
+            for (int i = 0; i < pendingCount[v]; i++)
+            {
+                long entry = pending[v][i];
+                int w = (int) (entry >>> 32);
+                int gap = w - prev - 1;
+                while ((gap & ~0x7F) != 0)
+                {
+                    packed[pos++] = (byte) (gap & 0x7F | 0x80);
+                    gap >>>= 7;
+                }
+                packed[pos++] = (byte) gap;
+                weights[e++] = (byte) entry;
+                prev = w;
+            }
+            pending[v] = null;
+        }
+        offset[n] = pos;
+        firstEdge[n] = e;
+        numEdge = e;
+        pending = null;
+        pendingCount = null;
+        data = packed;
+    }
+
+
+    private static int varintLength(int value)
+    {
+        int length = 1;
+        while ((value & ~0x7F) != 0)
+        {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+}
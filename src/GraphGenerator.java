@@ -0,0 +1,352 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic graphs for scaling experiments. Every edge gets a
+ * weight in 0.01 .. 1.00, drawn uniformly, so tau keeps a predictable share
+ * of the edges. The same generator and seed always produce the same edges in
+ * the same order. Edges are streamed to a sink one at a time and the
+ * generators keep at most O(n) state, except Barabasi-Albert which needs O(m).
+ *
+ * Usage: java GraphGenerator rmat scale edges seed out.mtx
+ *        java GraphGenerator ba nodes edgesPerNode seed out.mtx
+ *        java GraphGenerator er nodes probability seed out.mtx
+ */
+public abstract class GraphGenerator {
+
+    /**
+     * Receives the generated edges
+     */
+    public interface EdgeSink {
+        /**
+         * @param v      - one end of the edge, ids start at 1
+         * @param w      - the other end of the edge
+         * @param weight - the weight of the edge, in 0.01 .. 1.00
+         */
+        void edge(int v, int w, double weight);
+    }
+
+    protected final int nodes;
+    protected final long seed;
+
+
+    protected GraphGenerator(int nodes, long seed) {
+        if (nodes < 1) {
+            throw new IllegalArgumentException("nodes must be > 0: " + nodes);
+        }
+        this.nodes = nodes;
+        this.seed = seed;
+    }
+
+
+    /**
+     * @return the number of nodes, numbered 1 to nodeCount()
+     */
+    public int nodeCount() {
+        return nodes;
+    }
+
+
+    /**
+     * Stream every edge of the graph to a sink
+     *
+     * @param sink receives the edges
+     */
+    public void generate(EdgeSink sink) {
+        generate(new SplittableRandom(seed), sink);
+    }
+
+
+    // Weights are drawn from the same stream as the edges
+    protected abstract void generate(SplittableRandom random, EdgeSink sink);
+
+
+    protected static double weight(SplittableRandom random) {
+        return (1 + random.nextInt(100)) / 100.0;
+    }
+
+
+    /**
+     * Write the graph in the .mtx format read by loadGraphFromDataSet
+     *
+     * @param path the file to write
+     * @return the number of edges written
+     * @throws IOException if the file cannot be written
+     */
+    public long writeMtx(String path) throws IOException {
+        try (MtxWriter writer = new MtxWriter(path, nodes)) {
+            generate(writer);
+            return writer.edges;
+        }
+    }
+
+
+    /**
+     * R-MAT graph (Chakrabarti, Zhan and Faloutsos 2004) with the Graph500
+     * quadrant probabilities. Each edge picks one of the four quadrants of the
+     * adjacency matrix scale times, which gives a skewed, community-like
+     * degree distribution. Self-loops are redrawn; as in Graph500, the same
+     * pair may be drawn more than once.
+     *
+     * @param scale - log2 of the number of nodes
+     * @param edges - the number of edges to draw
+     * @param seed  - the seed of the random generator
+     * @return the generator
+     */
+    public static GraphGenerator rmat(int scale, long edges, long seed) {
+        return rmat(scale, edges, 0.57, 0.19, 0.19, seed);
+    }
+
+
+    /**
+     * R-MAT graph with custom quadrant probabilities, d = 1 - a - b - c
+     *
+     * @param scale - log2 of the number of nodes
+     * @param edges - the number of edges to draw
+     * @param a     - probability of the top-left quadrant
+     * @param b     - probability of the top-right quadrant
+     * @param c     - probability of the bottom-left quadrant
+     * @param seed  - the seed of the random generator
+     * @return the generator
+     */
+    public static GraphGenerator rmat(int scale, long edges, double a, double b, double c, long seed) {
+        if (scale < 1 || scale > 30) {
+            throw new IllegalArgumentException("scale must be in 1 .. 30: " + scale);
+        }
+        if (a < 0 || b < 0 || c < 0 || a + b + c > 1) {
+            throw new IllegalArgumentException("invalid quadrant probabilities");
+        }
+        return new GraphGenerator(1 << scale, seed) {
+            @Override
+            protected void generate(SplittableRandom random, EdgeSink sink) {
+                double ab = a + b;
+                double abc = a + b + c;
+                for (long e = 0; e < edges; e++) {
+                    int v;
+                    int w;
+                    do {
+                        v = 0;
+                        w = 0;
+                        for (int bit = 1 << (scale - 1); bit != 0; bit >>>= 1) {
+                            double r = random.nextDouble();
+                            if (r >= abc) {
+                                v |= bit;
+                                w |= bit;
+                            } else if (r >= ab) {
+                                v |= bit;
+                            } else if (r >= a) {
+                                w |= bit;
+                            }
+                        }
+                    } while (v == w);
+                    sink.edge(v + 1, w + 1, weight(random));
+                }
+            }
+        };
+    }
+
+
+    /**
+     * Barabasi-Albert preferential attachment graph, generated in O(m) with
+     * the method of Batagelj and Brandes 2005: every new node links to
+     * edgesPerNode earlier endpoints drawn from the list of all endpoints so
+     * far, i.e. proportionally to degree. Self-loops are skipped.
+     *
+     * @param nodes        - the number of nodes
+     * @param edgesPerNode - the number of edges added with each node
+     * @param seed         - the seed of the random generator
+     * @return the generator
+     */
+    public static GraphGenerator barabasiAlbert(int nodes, int edgesPerNode, long seed) {
+        if (edgesPerNode < 1 || 2L * nodes * edgesPerNode > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("invalid edgesPerNode: " + edgesPerNode);
+        }
+        return new GraphGenerator(nodes, seed) {
+            @Override
+            protected void generate(SplittableRandom random, EdgeSink sink) {
+                int[] endpoints = new int[2 * nodes * edgesPerNode];
+                int size = 0;
+                for (int v = 0; v < nodes; v++) {
+                    for (int i = 0; i < edgesPerNode; i++) {
+                        endpoints[size] = v;
+                        int w = endpoints[random.nextInt(size + 1)];
+                        endpoints[size + 1] = w;
+                        size += 2;
+                        if (v != w) {
+                            sink.edge(v + 1, w + 1, weight(random));
+                        }
+                    }
+                }
+            }
+        };
+    }
+
+
+    /**
+     * Erdos-Renyi G(n, p) graph. Instead of flipping a coin for each of the
+     * n(n-1)/2 pairs, the gaps between edges are drawn from a geometric
+     * distribution (Batagelj and Brandes 2005), so the cost is O(n + m).
+     *
+     * @param nodes       - the number of nodes
+     * @param probability - the probability of each edge
+     * @param seed        - the seed of the random generator
+     * @return the generator
+     */
+    public static GraphGenerator erdosRenyi(int nodes, double probability, long seed) {
+        if (probability < 0 || probability > 1) {
+            throw new IllegalArgumentException("probability must be in [0, 1]: " + probability);
+        }
+        return new GraphGenerator(nodes, seed) {
+            @Override
+            protected void generate(SplittableRandom random, EdgeSink sink) {
+                if (probability == 0) {
+                    return;
+                }
+                double logMiss = Math.log(1 - probability);
+                // A skip past every pair ends the graph; capping it there
+                // keeps w from overflowing
+                long pairs = (long) nodes * (nodes - 1) / 2;
+                int v = 1;
+                long w = -1;
+                while (v < nodes) {
+                    double skip = probability == 1 ? 0 : Math.floor(Math.log(1 - random.nextDouble()) / logMiss);
+                    w += 1 + (long) Math.min(skip, pairs);
+                    while (w >= v && v < nodes) {
+                        w -= v;
+                        v++;
+                    }
+                    if (v < nodes) {
+                        sink.edge(v + 1, (int) w + 1, weight(random));
+                    }
+                }
+            }
+        };
+    }
+
+
+    /**
+     * Writes edges as "v w weight" lines through a large direct buffer. The
+     * edge count in the header is written as ten zero-padded digits and
+     * filled in on close, once it is known.
+     */
+    private static class MtxWriter implements EdgeSink, AutoCloseable {
+        private static final int COUNT_DIGITS = 10;
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        private final int countOffset;
+        long edges;
+
+
+        MtxWriter(String path, int nodes) throws IOException {
+            channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            byte[] header = (nodes + " ").getBytes(StandardCharsets.US_ASCII);
+            buffer.put(header);
+            countOffset = header.length;
+            for (int i = 0; i < COUNT_DIGITS; i++) {
+                buffer.put((byte) '0');
+            }
+            buffer.put((byte) '\n');
+        }
+
+
+        @Override
+        public void edge(int v, int w, double weight) {
+            if (buffer.remaining() < 32) {
+                flush();
+            }
+            putInt(v);
+            buffer.put((byte) ' ');
+            putInt(w);
+            buffer.put((byte) ' ');
+            int percent = (int) Math.round(weight * 100);
+            buffer.put((byte) ('0' + percent / 100));
+            buffer.put((byte) '.');
+            buffer.put((byte) ('0' + percent / 10 % 10));
+            buffer.put((byte) ('0' + percent % 10));
+            buffer.put((byte) '\n');
+            edges++;
+        }
+
+
+        private void putInt(int value) {
+            int start = buffer.position();
+            do {
+                buffer.put((byte) ('0' + value % 10));
+                value /= 10;
+            } while (value != 0);
+            // The digits were written least significant first
+            for (int i = start, j = buffer.position() - 1; i < j; i++, j--) {
+                byte tmp = buffer.get(i);
+                buffer.put(i, buffer.get(j));
+                buffer.put(j, tmp);
+            }
+        }
+
+
+        private void flush() {
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new java.io.UncheckedIOException(e);
+            }
+            buffer.clear();
+        }
+
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                String count = Long.toString(edges);
+                if (count.length() > COUNT_DIGITS) {
+                    throw new IOException("too many edges: " + edges);
+                }
+                String padded = "0".repeat(COUNT_DIGITS - count.length()) + count;
+                channel.write(ByteBuffer.wrap(padded.getBytes(StandardCharsets.US_ASCII)), countOffset);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+
+    /**
+     * @param args see the class comment
+     * @throws IOException if the output cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 5) {
+            System.err.println("usage: GraphGenerator rmat|ba|er size edges|edgesPerNode|probability seed out.mtx");
+            System.exit(1);
+        }
+        long seed = Long.parseLong(args[3]);
+        GraphGenerator generator;
+        switch (args[0]) {
+            case "rmat":
+                generator = rmat(Integer.parseInt(args[1]), Long.parseLong(args[2]), seed);
+                break;
+            case "ba":
+                generator = barabasiAlbert(Integer.parseInt(args[1]), Integer.parseInt(args[2]), seed);
+                break;
+            case "er":
+                generator = erdosRenyi(Integer.parseInt(args[1]), Double.parseDouble(args[2]), seed);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown model: " + args[0]);
+        }
+        long start = System.nanoTime();
+        long edges = generator.writeMtx(args[4]);
+        System.out.println("Wrote " + generator.nodeCount() + " nodes and " + edges + " edges to "
+            + args[4] + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+}
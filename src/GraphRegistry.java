@@ -0,0 +1,542 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Many datasets loaded side by side under one memory budget, e.g. all the
+ * networks of the Facebook100 collection. Datasets are registered by name
+ * and loaded on first use, in parallel when several are needed at once.
+ *
+ * Every graph is charged an estimate of its heap size: from the .mtx header
+ * while it loads, then from its node and edge counts. When a load would go
+ * over the budget, the least recently used graphs that are not in use are
+ * evicted. With a spill directory an evicted graph is first written there
+ * as a binary snapshot, which reloads several times faster than the .mtx;
+ * without one an unchanged graph is reloaded from the .mtx. A graph that
+ * was changed is always written, to a temporary directory if there is no
+ * spill directory, so changes persist whether or not the graph is evicted
+ * in between; if it cannot be written it stays loaded, over the budget
+ * until a later eviction writes it.
+ *
+ * A dataset is used by one caller at a time, from acquire to release, since
+ * an InformationSpread is not thread-safe; acquire waits while another
+ * caller has it. Changes a caller makes, e.g. by a removal query, are seen
+ * by every later caller. A load waits while the graphs in use leave no
+ * room for it, but a graph larger than the whole budget is still loaded
+ * once nothing else is charged.
+ *
+ * Queries across networks run in parallel, one task per network.
+ */
+public class GraphRegistry {
+
+    private final long budget;
+    private final double tau;
+    private final Supplier<Graph> graphFactory;
+    private final String spillDirectory;
+
+    // Guarded by this: all datasets in registration order, the loaded ones
+    // in least recently used order, and the bytes charged to loaded graphs,
+    // graphs being loaded and graphs being evicted
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+    private final LinkedHashMap<String, Entry> resident = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private long charged;
+    private long loads;
+    private long evictions;
+    private long spills;
+    // Guarded by this: where changed graphs are spilled without a spill
+    // directory, created on first use
+    private File temporarySpills;
+
+
+    /**
+     * Load into GraphL and reload evicted graphs from their .mtx
+     *
+     * @param budget - the bytes all loaded graphs may use together
+     * @param tau    - the transmissibility every dataset is loaded with
+     */
+    public GraphRegistry(long budget, double tau) {
+        this(budget, tau, GraphL::new, null);
+    }
+
+
+    /**
+     * @param budget         - the bytes all loaded graphs may use together
+     * @param tau            - the transmissibility every dataset is loaded with
+     * @param graphFactory   - creates the graph backend datasets are loaded into
+     * @param spillDirectory - where evicted graphs are written, null to
+     *                         reload them from their .mtx unless they
+     *                         were changed
+     */
+    public GraphRegistry(long budget, double tau, Supplier<Graph> graphFactory, String spillDirectory) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("budget must be > 0: " + budget);
+        }
+        if (spillDirectory != null && !new File(spillDirectory).isDirectory()) {
+            throw new IllegalArgumentException("not a directory: " + spillDirectory);
+        }
+        this.budget = budget;
+        this.tau = tau;
+        this.graphFactory = graphFactory;
+        this.spillDirectory = spillDirectory;
+    }
+
+
+    /**
+     * A registered dataset
+     */
+    private static final class Entry {
+        final String name;
+        final String path;
+        final int id;
+        final long nodes;
+        final long lines;
+
+        InformationSpread spread; // while loaded or being evicted
+        boolean loading;
+        boolean evicting;
+        boolean inUse;            // acquired and not yet released
+        long bytes;               // charged, or last charged once evicted
+        String snapshot;          // spilled copy, null if none
+        long loadedVersion;       // graph version when loaded
+
+        Entry(String name, String path, int id, long nodes, long lines) {
+            this.name = name;
+            this.path = path;
+            this.id = id;
+            this.nodes = nodes;
+            this.lines = lines;
+        }
+    }
+
+
+    /**
+     * Register a dataset; it is loaded on first use
+     *
+     * @param name - the name to refer to the dataset by
+     * @param path - the .mtx file
+     * @throws IOException if the file cannot be read
+     */
+    public void register(String name, String path) throws IOException {
+        long[] header = readHeader(path);
+        synchronized (this) {
+            if (entries.containsKey(name)) {
+                throw new IllegalArgumentException("dataset already registered: " + name);
+            }
+            entries.put(name, new Entry(name, path, entries.size(), header[0], header[1]));
+        }
+    }
+
+
+    /**
+     * Register every .mtx file of a directory under its file name without
+     * the extension
+     *
+     * @param directory - the directory
+     * @return the number of datasets registered
+     * @throws IOException if the directory or a file cannot be read
+     */
+    public int registerDirectory(String directory) throws IOException {
+        File[] files = new File(directory).listFiles((dir, file) -> file.endsWith(".mtx"));
+        if (files == null) {
+            throw new IOException("cannot list " + directory);
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            String name = file.getName();
+            register(name.substring(0, name.length() - ".mtx".length()), file.getPath());
+        }
+        return files.length;
+    }
+
+
+    // The node and edge counts of the first line of a .mtx
+    private static long[] readHeader(String path) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line = reader.readLine();
+            String[] fields = line == null ? new String[0] : line.trim().split(" ");
+            if (fields.length < 2) {
+                throw new IOException("missing node and edge counts: " + path);
+            }
+            try {
+                return new long[] {Long.parseLong(fields[0]), Long.parseLong(fields[1])};
+            } catch (NumberFormatException e) {
+                throw new IOException("bad node and edge counts in " + path + ": " + line, e);
+            }
+        }
+    }
+
+
+    /**
+     * Approximate heap bytes of a graph with some nodes and directed edge
+     * entries, plus the adjacency and weight snapshots the queries build
+     * over it. Measured on socfb-American75: about 33 bytes per entry for
+     * GraphL, 3 for GraphC and 9 for VersionedGraph, and 9 for the snapshots.
+     *
+     * @param graph   - a graph of the backend, only its class is used
+     * @param nodes   - the number of nodes
+     * @param entries - the number of directed edge entries, twice the edges
+     * @return the estimated bytes
+     */
+    static long estimateBytes(Graph graph, long nodes, long entries) {
+        long backend;
+        if (graph instanceof GraphC) {
+            backend = 3 * entries + 24 * nodes;
+        } else if (graph instanceof GraphM) {
+            backend = 4 * nodes * nodes + 16 * nodes;
+        } else if (graph instanceof VersionedGraph) {
+            backend = 9 * entries + 40 * nodes;
+        } else {
+            backend = 33 * entries + 48 * nodes;
+        }
+        return backend + 9 * entries + 40 * nodes;
+    }
+
+
+    /**
+     * Get a dataset for exclusive use, loading it if needed, or waiting
+     * while another caller has it. It is not evicted until released, and
+     * must be released exactly once before it is acquired again. Callers
+     * that hold several datasets at once must acquire them in the same
+     * order, or they can wait on each other forever.
+     *
+     * @param name - the name of the dataset
+     * @return the loaded dataset, with the changes of earlier callers
+     */
+    public InformationSpread acquire(String name) {
+        Entry entry;
+        while (true) {
+            List<Entry> victims;
+            boolean admitted;
+            synchronized (this) {
+                entry = entries.get(name);
+                if (entry == null) {
+                    throw new IllegalArgumentException("unknown dataset: " + name);
+                }
+                if (entry.spread != null && !entry.evicting) {
+                    if (entry.inUse) {
+                        waitForChange();
+                        continue;
+                    }
+                    resident.get(name); // most recently used now
+                    entry.inUse = true;
+                    return entry.spread;
+                }
+                if (entry.loading || entry.evicting) {
+                    waitForChange();
+                    continue;
+                }
+                long need = entry.snapshot != null ? entry.bytes
+                    : estimateBytes(graphFactory.get(), entry.nodes + 1, 2 * entry.lines);
+                victims = selectVictims(need);
+                long freed = 0;
+                for (Entry victim : victims) {
+                    freed += victim.bytes;
+                }
+                admitted = charged - freed + need <= budget || charged == freed;
+                if (!admitted && victims.isEmpty()) {
+                    waitForChange();
+                    continue;
+                }
+                if (admitted) {
+                    entry.loading = true;
+                    entry.bytes = need;
+                    charged += need;
+                }
+            }
+            evict(victims);
+            if (admitted) {
+                break;
+            }
+        }
+        return load(entry);
+    }
+
+
+    /**
+     * Let a dataset acquired before be evicted again
+     *
+     * @param name - the name of the dataset
+     */
+    public void release(String name) {
+        List<Entry> victims;
+        synchronized (this) {
+            Entry entry = entries.get(name);
+            if (entry == null || !entry.inUse) {
+                throw new IllegalStateException("dataset not acquired: " + name);
+            }
+            entry.inUse = false;
+            // A graph larger than its estimate may have left the budget
+            // exceeded
+            victims = charged > budget ? selectVictims(0) : new ArrayList<Entry>();
+            notifyAll();
+        }
+        evict(victims);
+    }
+
+
+    private InformationSpread load(Entry entry) {
+        InformationSpread spread = new InformationSpread(InformationSpread.DEFAULT_CACHE_CAPACITY, graphFactory);
+        try {
+            if (entry.snapshot != null) {
+                spread.loadGraphFromSnapshot(entry.snapshot);
+            } else {
+                spread.loadGraphFromDataSet(entry.path, tau);
+            }
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                entry.loading = false;
+                charged -= entry.bytes;
+                notifyAll();
+            }
+            if (e instanceof IOException) {
+                throw new UncheckedIOException((IOException) e);
+            }
+            throw (RuntimeException) e;
+        }
+        long bytes = estimateBytes(spread.graph, spread.graph.nodeCount(), spread.graph.edgeCount());
+        synchronized (this) {
+            entry.spread = spread;
+            entry.loadedVersion = spread.graphVersion();
+            entry.loading = false;
+            charged += bytes - entry.bytes;
+            entry.bytes = bytes;
+            entry.inUse = true;
+            resident.put(entry.name, entry);
+            loads++;
+            notifyAll();
+        }
+        return spread;
+    }
+
+
+    // Least recently used graphs not in use, enough to make room for need
+    // bytes if possible; they are marked as being evicted
+    private List<Entry> selectVictims(long need) {
+        List<Entry> victims = new ArrayList<Entry>();
+        long free = budget - charged;
+        Iterator<Entry> lru = resident.values().iterator();
+        while (free < need && lru.hasNext()) {
+            Entry candidate = lru.next();
+            if (!candidate.inUse) {
+                lru.remove();
+                candidate.evicting = true;
+                victims.add(candidate);
+                free += candidate.bytes;
+            }
+        }
+        return victims;
+    }
+
+
+    // Spill the victims that were changed, or all of them if there is a
+    // spill directory, and drop them; runs outside the lock, acquire waits
+    // for a graph being evicted. A changed graph that cannot be written
+    // stays loaded, still charged, rather than lose its changes
+    private void evict(List<Entry> victims) {
+        for (Entry victim : victims) {
+            InformationSpread spread = victim.spread;
+            boolean changed = spread.graphVersion() != victim.loadedVersion;
+            boolean spilled = false;
+            boolean kept = false;
+            if (changed || spillDirectory != null && victim.snapshot == null) {
+                File file = null;
+                File partial = null;
+                try {
+                    file = new File(spillDirectory(),
+                        victim.id + "-" + victim.name.replaceAll("[^A-Za-z0-9._-]", "_") + ".graph");
+                    // Written aside and moved over, so a failed write
+                    // leaves an older snapshot intact
+                    partial = new File(file.getPath() + ".partial");
+                    spread.writeSnapshot(partial.getPath());
+                    Files.move(partial.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    if (spillDirectory == null) {
+                        file.deleteOnExit();
+                    }
+                    victim.snapshot = file.getPath();
+                    spilled = true;
+                } catch (IOException e) {
+                    if (partial != null) {
+                        partial.delete();
+                    }
+                    // An unchanged graph is reloaded from the .mtx
+                    kept = changed;
+                }
+            }
+            synchronized (this) {
+                victim.evicting = false;
+                if (kept) {
+                    resident.put(victim.name, victim);
+                } else {
+                    victim.spread = null;
+                    charged -= victim.bytes;
+                    evictions++;
+                    if (spilled) {
+                        spills++;
+                    }
+                }
+                notifyAll();
+            }
+        }
+    }
+
+
+    private synchronized File spillDirectory() throws IOException {
+        if (spillDirectory != null) {
+            return new File(spillDirectory);
+        }
+        if (temporarySpills == null) {
+            temporarySpills = Files.createTempDirectory("spread-registry").toFile();
+            temporarySpills.deleteOnExit();
+        }
+        return temporarySpills;
+    }
+
+
+    private void waitForChange() {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for memory", e);
+        }
+    }
+
+
+    /**
+     * Load datasets in parallel, as many as the budget holds
+     *
+     * @param names - the names of the datasets
+     */
+    public void preload(Collection<String> names) {
+        query(names, spread -> Boolean.TRUE);
+    }
+
+
+    /**
+     * Run a query on several datasets in parallel, one task per dataset.
+     * Each task has its dataset for exclusive use, see acquire, and the
+     * changes it makes are kept.
+     *
+     * @param names - the names of the datasets, duplicates run once
+     * @param query - the query, called with each loaded dataset
+     * @return the result for every name, in the order given
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Map<String, T> query(Collection<String> names, Function<InformationSpread, T> query) {
+        List<String> distinct = new ArrayList<String>(new LinkedHashSet<String>(names));
+        Object[] results = new Object[distinct.size()];
+        IntStream.range(0, distinct.size()).parallel().forEach(i -> {
+            String name = distinct.get(i);
+            InformationSpread spread = acquire(name);
+            try {
+                results[i] = query.apply(spread);
+            } finally {
+                release(name);
+            }
+        });
+        Map<String, T> byName = new LinkedHashMap<String, T>();
+        for (int i = 0; i < distinct.size(); i++) {
+            byName.put(distinct.get(i), (T) results[i]);
+        }
+        return byName;
+    }
+
+
+    /**
+     * @return R0 of every registered dataset
+     */
+    public Map<String, Double> rNumbers() {
+        return query(names(), InformationSpread::rNumber);
+    }
+
+
+    /**
+     * @return the average degree of every registered dataset
+     */
+    public Map<String, Double> averageDegrees() {
+        return query(names(), InformationSpread::avgDegree);
+    }
+
+
+    /**
+     * @param seed      - the id of the seed node in every dataset
+     * @param threshold - the percentage of nodes to reach
+     * @return generations(seed, threshold) of every registered dataset
+     */
+    public Map<String, Integer> generations(int seed, double threshold) {
+        return query(names(), spread -> spread.generations(seed, threshold));
+    }
+
+
+    /**
+     * @return the names of the registered datasets, in registration order
+     */
+    public synchronized List<String> names() {
+        return new ArrayList<String>(entries.keySet());
+    }
+
+
+    /**
+     * @param name - the name of a dataset
+     * @return true iff the dataset is loaded
+     */
+    public synchronized boolean isResident(String name) {
+        return resident.containsKey(name);
+    }
+
+
+    /**
+     * @return the estimated bytes of the loaded graphs and of those being
+     *         loaded or evicted
+     */
+    public synchronized long chargedBytes() {
+        return charged;
+    }
+
+
+    /**
+     * @return the memory budget in bytes
+     */
+    public long budget() {
+        return budget;
+    }
+
+
+    /**
+     * @return the number of loads, reloads after eviction included
+     */
+    public synchronized long loads() {
+        return loads;
+    }
+
+
+    /**
+     * @return the number of evictions
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+
+    /**
+     * @return the number of evictions that wrote a snapshot
+     */
+    public synchronized long spills() {
+        return spills;
+    }
+}
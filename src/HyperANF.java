@@ -0,0 +1,287 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Approximate neighborhood function (Boldi, Rosa and Vigna 2011): estimates,
+ * for every node at once, how many nodes are within t spread levels of it.
+ * Every node keeps a HyperLogLog counter of the nodes it has reached. Level
+ * t + 1 of a node is the union of its own counter and its neighbors' counters
+ * at level t, and a union of HyperLogLog counters is a register-wise max, so
+ * each level is one parallel pass over the edges. The passes stop when no
+ * counter changes, i.e. after the eccentricity of the farthest node.
+ *
+ * Memory is two counters of 2^log2m one-byte registers per node plus one
+ * float per node and level. Each estimate has a relative standard error of
+ * about 1.04 / sqrt(2^log2m): 13% for log2m = 6, 3.3% for log2m = 10.
+ */
+public class HyperANF {
+
+    /**
+     * Default number of registers per counter, as a power of two
+     */
+    public static final int DEFAULT_LOG2M = 7;
+
+    // Largest array the JVM allocates
+    private static final int MAX_REGISTERS = Integer.MAX_VALUE - 8;
+
+    private final int n;
+    private final int m;
+    private final float[][] estimates;
+    private final int[] componentSize;
+
+
+    /**
+     * Run the passes over the loaded graph
+     *
+     * @param spread     - the loaded graph
+     * @param log2m      - log2 of the registers per counter, in 4 .. 16
+     * @param randomSeed - the seed of the hash function
+     * @throws IllegalArgumentException if log2m is out of range or the
+     *         counters of all nodes do not fit in one array; use a smaller
+     *         log2m for such graphs
+     */
+    public HyperANF(InformationSpread spread, int log2m, long randomSeed) {
+        if (log2m < 4 || log2m > 16) {
+            throw new IllegalArgumentException("log2m must be in 4 .. 16: " + log2m);
+        }
+        int[][] adjacency = spread.adjacency();
+        this.n = adjacency.length - 1; // there is no node with id 0
+        this.m = 1 << log2m;
+        long registers = (long) (n + 1) * m;
+        if (registers > MAX_REGISTERS) {
+            throw new IllegalArgumentException(registers + " registers for " + n + " nodes with log2m = "
+                + log2m + " do not fit in an array, use a smaller log2m");
+        }
+
+        ComponentIndex components = spread.componentIndex();
+        componentSize = new int[n + 1];
+        for (int v = 1; v <= n; v++) {
+            componentSize[v] = components.size(v);
+        }
+
+        byte[] current = new byte[(int) registers];
+        byte[] next = new byte[(int) registers];
+        long salt = new SplittableRandom(randomSeed).nextLong();
+        for (int v = 1; v <= n; v++) {
+            long hash = mix(v ^ salt);
+            int register = (int) (hash >>> (64 - log2m));
+            // Rank of the first 1 bit among the remaining bits, capped so a
+            // zero hash does not overflow the register
+            int rank = Math.min(Long.numberOfLeadingZeros(hash << log2m) + 1, 64 - log2m + 1);
+            current[v * m + register] = (byte) rank;
+        }
+
+        List<float[]> levels = new ArrayList<float[]>();
+        levels.add(estimateAll(current));
+        while (true) {
+            byte[] from = current;
+            byte[] to = next;
+            long changed = IntStream.rangeClosed(1, n).parallel()
+                .filter(v -> union(adjacency[v], from, to, v))
+                .count();
+            SpreadMetrics.count(SpreadMetrics.Counter.NODES_DEQUEUED, n);
+            if (changed == 0) {
+                break;
+            }
+            current = to;
+            next = from;
+            levels.add(estimateAll(current));
+        }
+        estimates = levels.toArray(new float[0][]);
+    }
+
+
+    /**
+     * @param spread - the loaded graph, with DEFAULT_LOG2M registers per counter
+     */
+    public HyperANF(InformationSpread spread) {
+        this(spread, DEFAULT_LOG2M, 0);
+    }
+
+
+    // The fmix64 finalizer of MurmurHash3
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+
+    // Write the union of v's counter and its neighbors' counters into to,
+    // return true if it differs from v's counter in from
+    private boolean union(int[] neighbors, byte[] from, byte[] to, int v) {
+        int base = v * m;
+        System.arraycopy(from, base, to, base, m);
+        for (int w : neighbors) {
+            int other = w * m;
+            for (int i = 0; i < m; i++) {
+                byte r = from[other + i];
+                if (r > to[base + i]) {
+                    to[base + i] = r;
+                }
+            }
+        }
+        SpreadMetrics.count(SpreadMetrics.Counter.EDGES_SCANNED, neighbors.length);
+        for (int i = 0; i < m; i++) {
+            if (to[base + i] != from[base + i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private float[] estimateAll(byte[] registers) {
+        float[] level = new float[n + 1];
+        IntStream.rangeClosed(1, n).parallel().forEach(v -> level[v] = (float) estimate(registers, v * m));
+        return level;
+    }
+
+
+    // HyperLogLog estimate (Flajolet et al. 2007) with linear counting for
+    // small cardinalities
+    private double estimate(byte[] registers, int base) {
+        double sum = 0;
+        int zeros = 0;
+        for (int i = 0; i < m; i++) {
+            int r = registers[base + i];
+            sum += Double.longBitsToDouble((long) (1023 - r) << 52); // 2^-r
+            if (r == 0) {
+                zeros++;
+            }
+        }
+        double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+        double raw = alpha * m * m / sum;
+        if (raw <= 2.5 * m && zeros > 0) {
+            return m * Math.log((double) m / zeros);
+        }
+        return raw;
+    }
+
+
+    /**
+     * @return the number of levels computed; the estimates do not change
+     *         after the last one
+     */
+    public int levels() {
+        return estimates.length;
+    }
+
+
+    /**
+     * @return the relative standard error of every estimate
+     */
+    public double relativeStandardError() {
+        return 1.04 / Math.sqrt(m);
+    }
+
+
+    /**
+     * @param node  - the node
+     * @param level - the number of spread levels
+     * @return the estimated number of nodes within level hops of node, itself
+     *         included; never more than the size of its component
+     */
+    public double estimate(int node, int level) {
+        if (node <= 0 || node > n) {
+            throw new IllegalArgumentException("node not in graph range: " + node);
+        }
+        float value = estimates[Math.min(Math.max(level, 0), estimates.length - 1)][node];
+        return Math.min(value, componentSize[node]);
+    }
+
+
+    /**
+     * Lower end of the interval of two standard errors around an estimate,
+     * which holds the exact value about 95% of the time
+     *
+     * @param node  - the node
+     * @param level - the number of spread levels
+     * @return the lower bound, at least 1
+     */
+    public double lowerBound(int node, int level) {
+        return Math.max(1, estimate(node, level) * (1 - 2 * relativeStandardError()));
+    }
+
+
+    /**
+     * Upper end of the interval of two standard errors around an estimate
+     *
+     * @param node  - the node
+     * @param level - the number of spread levels
+     * @return the upper bound, at most the size of the node's component
+     */
+    public double upperBound(int node, int level) {
+        return Math.min(componentSize[node], estimate(node, level) * (1 + 2 * relativeStandardError()));
+    }
+
+
+    /**
+     * @param node the node
+     * @return the estimated coverage of the graph after each spread level,
+     *         the counterpart of InformationSpread.spreadProfile divided by
+     *         the number of nodes
+     */
+    public double[] coverage(int node) {
+        double[] curve = new double[estimates.length];
+        for (int level = 0; level < curve.length; level++) {
+            curve[level] = estimate(node, level) / n;
+        }
+        return curve;
+    }
+
+
+    /**
+     * Estimated counterpart of InformationSpread.generations. Whether the
+     * threshold can be reached at all is decided exactly, from the size of
+     * the seed's component.
+     *
+     * @param seed      - the id of the seed node
+     * @param threshold - the percentage of nodes to reach
+     * @return the estimated number of spread levels, or -1 if the threshold
+     *         cannot be reached or the seed is not in the graph
+     */
+    public int generations(int seed, double threshold) {
+        if (seed <= 0 || seed > n || threshold < 0 || threshold > 1) {
+            return -1;
+        }
+        if ((double) componentSize[seed] / n < threshold) {
+            return -1;
+        }
+        for (int level = 0; level < estimates.length; level++) {
+            if (estimate(seed, level) / n >= threshold) {
+                return level;
+            }
+        }
+        // The estimate fell short of a reachable threshold
+        return estimates.length - 1;
+    }
+
+
+    /**
+     * @param threshold - the percentage of nodes to reach
+     * @return the estimated generations of every node, indexed by node id
+     */
+    public int[] generationsAll(double threshold) {
+        int[] generations = new int[n + 1];
+        generations[0] = -1;
+        IntStream.rangeClosed(1, n).parallel().forEach(v -> generations[v] = generations(v, threshold));
+        return generations;
+    }
+
+
+    /**
+     * @param level - the number of spread levels
+     * @return the estimated number of ordered pairs (u, v) with v within
+     *         level hops of u, the neighborhood function N(level)
+     */
+    public double neighborhoodFunction(int level) {
+        double total = 0;
+        for (int v = 1; v <= n; v++) {
+            total += estimate(v, level);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,441 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Seed-set selection for maximum spread under the independent cascade model:
+ * every edge of the loaded graph transmits with probability tau, once.
+ * Two strategies are offered, CELF lazy greedy over Monte Carlo estimates for
+ * small graphs and IMM reverse-reachable set sampling for large ones. Both are
+ * deterministic for a given random seed, regardless of the number of threads.
+ */
+public class InfluenceMaximization {
+
+    // RR sets generated by one parallel task
+    private static final int CHUNK = 512;
+
+    // Below this tau live edges are sampled by geometric skipping
+    private static final double SKIP_TAU = 0.05;
+
+    private final int[][] adjacency;
+    private final double tau;
+    private final boolean geometric;
+    private final double logMissProbability;
+    private final int n;
+    private final ThreadLocal<Workspace> workspaces;
+
+
+    /**
+     * @param spread the loaded graph and transmissibility to work on
+     */
+    public InfluenceMaximization(InformationSpread spread) {
+        this.adjacency = spread.adjacency();
+        this.tau = spread.tau();
+        this.geometric = tau > 0 && tau < SKIP_TAU;
+        this.logMissProbability = Math.log(1 - tau);
+        this.n = adjacency.length - 1; // there is no node with id 0
+        this.workspaces = ThreadLocal.withInitial(() -> new Workspace(adjacency.length));
+    }
+
+
+    /**
+     * Estimate the expected number of nodes reached from a seed set
+     *
+     * @param seeds       - the ids of the seed nodes
+     * @param simulations - the number of Monte Carlo cascades
+     * @param randomSeed  - the seed of the random generator
+     * @return the average number of nodes reached, seeds included
+     */
+    public double estimateSpread(int[] seeds, int simulations, long randomSeed) {
+        if (simulations <= 0) {
+            throw new IllegalArgumentException("simulations must be > 0: " + simulations);
+        }
+        long total = IntStream.range(0, simulations).parallel()
+            .mapToLong(i -> cascade(seeds, seeds.length, random(randomSeed, i)))
+            .sum();
+        return (double) total / simulations;
+    }
+
+
+    /**
+     * Choose k seeds with the CELF lazy greedy algorithm. Marginal gains are
+     * only re-estimated for the candidate at the top of the queue, and all
+     * estimates share the same random cascades so that they are comparable.
+     *
+     * @param k           - the number of seeds to select
+     * @param simulations - the number of Monte Carlo cascades per estimate
+     * @param randomSeed  - the seed of the random generator
+     * @return the selected seeds in the order they were chosen
+     */
+    public int[] celf(int k, int simulations, long randomSeed) {
+        if (simulations <= 0) {
+            throw new IllegalArgumentException("simulations must be > 0: " + simulations);
+        }
+        k = Math.max(0, Math.min(k, n));
+        double[] initial = new double[n + 1];
+        IntStream.rangeClosed(1, n).parallel().forEach(v -> {
+            int[] single = {v};
+            long total = 0;
+            for (int i = 0; i < simulations; i++) {
+                total += cascade(single, 1, random(randomSeed, i));
+            }
+            initial[v] = (double) total / simulations;
+        });
+
+        PriorityQueue<Candidate> queue = new PriorityQueue<Candidate>();
+        for (int v = 1; v <= n; v++) {
+            queue.add(new Candidate(v, initial[v]));
+        }
+
+        int[] seeds = new int[k];
+        int selected = 0;
+        double spread = 0;
+        while (selected < k && !queue.isEmpty()) {
+            Candidate top = queue.poll();
+            if (top.round == selected) {
+                seeds[selected++] = top.node;
+                spread += top.gain;
+            } else {
+                seeds[selected] = top.node;
+                top.gain = estimateSpread(seeds, selected + 1, simulations, randomSeed) - spread;
+                top.round = selected;
+                queue.add(top);
+            }
+        }
+        return seeds;
+    }
+
+
+    /**
+     * Choose k seeds with IMM (Tang, Shi and Xiao 2015) using the default
+     * failure probability of 1/n
+     *
+     * @param k          - the number of seeds to select
+     * @param epsilon    - the approximation error, e.g. 0.1
+     * @param randomSeed - the seed of the random generator
+     * @return the selected seeds in the order they were chosen
+     */
+    public int[] imm(int k, double epsilon, long randomSeed) {
+        return imm(k, epsilon, 1, randomSeed);
+    }
+
+
+    /**
+     * Choose k seeds with IMM. Random reverse-reachable sets are sampled in
+     * parallel until there are enough of them for the greedy maximum coverage
+     * to be a (1 - 1/e - epsilon) approximation with probability at least
+     * 1 - 1/n^ell.
+     *
+     * @param k          - the number of seeds to select
+     * @param epsilon    - the approximation error, e.g. 0.1
+     * @param ell        - the confidence exponent
+     * @param randomSeed - the seed of the random generator
+     * @return the selected seeds in the order they were chosen
+     */
+    public int[] imm(int k, double epsilon, double ell, long randomSeed) {
+        if (epsilon <= 0 || epsilon >= 1) {
+            throw new IllegalArgumentException("epsilon must be in (0, 1): " + epsilon);
+        }
+        k = Math.max(0, Math.min(k, n));
+        int[] seeds = new int[k];
+        if (k == 0) {
+            return seeds;
+        }
+        if (n < 2) {
+            seeds[0] = 1;
+            return seeds;
+        }
+
+        double logN = Math.log(n);
+        double log2N = logN / Math.log(2);
+        double logBinomial = logBinomial(n, k);
+        ell = ell * (1 + Math.log(2) / logN);
+        double epsilonPrime = Math.sqrt(2) * epsilon;
+        double lambdaPrime = (2 + 2.0 / 3 * epsilonPrime)
+            * (logBinomial + ell * logN + Math.log(Math.max(log2N, 1)))
+            * n / (epsilonPrime * epsilonPrime);
+
+        ReverseReachableSets sets = new ReverseReachableSets(randomSeed);
+        double lowerBound = 1;
+        for (int i = 1; i < log2N; i++) {
+            double x = n / Math.pow(2, i);
+            sets.extendTo(lambdaPrime / x);
+            double covered = n * sets.selectSeeds(seeds);
+            if (covered >= (1 + epsilonPrime) * x) {
+                lowerBound = covered / (1 + epsilonPrime);
+                break;
+            }
+        }
+
+        double oneMinusInvE = 1 - 1 / Math.E;
+        double alpha = Math.sqrt(ell * logN + Math.log(2));
+        double beta = Math.sqrt(oneMinusInvE * (logBinomial + ell * logN + Math.log(2)));
+        double lambdaStar = 2 * n * Math.pow(oneMinusInvE * alpha + beta, 2) / (epsilon * epsilon);
+        sets.extendTo(lambdaStar / lowerBound);
+        sets.selectSeeds(seeds);
+        return seeds;
+    }
+
+
+    // Spread of the first count seeds, parallel over the simulations
+    private double estimateSpread(int[] seeds, int count, int simulations, long randomSeed) {
+        long total = IntStream.range(0, simulations).parallel()
+            .mapToLong(i -> cascade(seeds, count, random(randomSeed, i)))
+            .sum();
+        return (double) total / simulations;
+    }
+
+
+    // Run one cascade from the first count seeds, return the nodes reached
+    private int cascade(int[] seeds, int count, SplittableRandom random) {
+        Workspace ws = workspaces.get();
+        int stamp = ws.next();
+        int[] mark = ws.mark;
+        int[] queue = ws.queue;
+        int tail = 0;
+        for (int i = 0; i < count; i++) {
+            if (mark[seeds[i]] != stamp) {
+                mark[seeds[i]] = stamp;
+                queue[tail++] = seeds[i];
+            }
+        }
+        return propagate(queue, tail, mark, stamp, random);
+    }
+
+
+    // Continue a cascade from the nodes in queue[0 .. tail - 1] and return
+    // the number of nodes reached. For small tau the live edges of a neighbor
+    // list are found by jumping geometric gaps instead of flipping a coin per edge.
+    private int propagate(int[] queue, int tail, int[] mark, int stamp, SplittableRandom random) {
+        int head = 0;
+        while (head < tail) {
+            int[] neighbors = adjacency[queue[head++]];
+            if (geometric) {
+                for (int i = gap(random); i < neighbors.length; i += 1 + gap(random)) {
+                    int v = neighbors[i];
+                    if (mark[v] != stamp) {
+                        mark[v] = stamp;
+                        queue[tail++] = v;
+                    }
+                }
+            } else {
+                for (int v : neighbors) {
+                    if (mark[v] != stamp && random.nextDouble() < tau) {
+                        mark[v] = stamp;
+                        queue[tail++] = v;
+                    }
+                }
+            }
+        }
+        return tail;
+    }
+
+
+    // Number of dead edges before the next live one
+    private int gap(SplittableRandom random) {
+        return (int) Math.min(Math.log(1 - random.nextDouble()) / logMissProbability, n + 1);
+    }
+
+
+    private static SplittableRandom random(long randomSeed, long index) {
+        return new SplittableRandom(randomSeed + index * 0x9E3779B97F4A7C15L);
+    }
+
+
+    private static double logBinomial(int n, int k) {
+        double sum = 0;
+        for (int i = 0; i < k; i++) {
+            sum += Math.log(n - i) - Math.log(i + 1);
+        }
+        return sum;
+    }
+
+
+    /**
+     * Random reverse-reachable sets, sampled and stored in chunks of CHUNK
+     * sets. Set i of a chunk holds the nodes nodes[ends[i - 1]] .. nodes[ends[i] - 1]
+     * of that chunk. Set s always comes from the same random stream, so the
+     * sets do not depend on how many threads sampled them.
+     */
+    private class ReverseReachableSets {
+        private final long randomSeed;
+        private final List<int[]> nodes = new ArrayList<int[]>();
+        private final List<int[]> ends = new ArrayList<int[]>();
+        private long size;
+
+
+        ReverseReachableSets(long randomSeed) {
+            this.randomSeed = randomSeed;
+        }
+
+
+        int count() {
+            return nodes.size() * CHUNK;
+        }
+
+
+        // Sample whole chunks in parallel until there are at least target sets
+        void extendTo(double target) {
+            long goal = Math.min((long) Math.ceil(target), Integer.MAX_VALUE - CHUNK);
+            int first = nodes.size();
+            int chunks = (int) ((goal + CHUNK - 1) / CHUNK) - first;
+            if (chunks <= 0) {
+                return;
+            }
+            int[][] sampled = new int[chunks][];
+            int[][] sampledEnds = new int[chunks][];
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                long from = (long) (first + c) * CHUNK;
+                int[] buffer = new int[Math.max(adjacency.length, 4 * CHUNK)];
+                int[] chunkEnds = new int[CHUNK];
+                int used = 0;
+                for (int i = 0; i < CHUNK; i++) {
+                    if (used + adjacency.length > buffer.length) {
+                        buffer = Arrays.copyOf(buffer, Math.max(used + adjacency.length, 2 * buffer.length));
+                    }
+                    used += sample(random(randomSeed, from + i), buffer, used);
+                    chunkEnds[i] = used;
+                }
+                sampled[c] = Arrays.copyOf(buffer, used);
+                sampledEnds[c] = chunkEnds;
+            });
+            for (int c = 0; c < chunks; c++) {
+                nodes.add(sampled[c]);
+                ends.add(sampledEnds[c]);
+                size += sampled[c].length;
+            }
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("too many reverse-reachable set entries: " + size);
+            }
+        }
+
+
+        /**
+         * Greedy maximum coverage over the sampled sets
+         *
+         * @param seeds receives the selected nodes
+         * @return the fraction of sets covered by the seeds
+         */
+        double selectSeeds(int[] seeds) {
+            int[] degree = new int[n + 1];
+            for (int[] chunk : nodes) {
+                for (int v : chunk) {
+                    degree[v]++;
+                }
+            }
+            // Inverted index: the sets containing node v are listed in
+            // members[start[v] .. start[v + 1] - 1]
+            int[] start = new int[n + 2];
+            for (int v = 1; v <= n; v++) {
+                start[v + 1] = start[v] + degree[v];
+            }
+            int[] members = new int[(int) size];
+            int[] fill = Arrays.copyOf(start, n + 1);
+            for (int c = 0; c < nodes.size(); c++) {
+                int[] chunk = nodes.get(c);
+                int[] chunkEnds = ends.get(c);
+                for (int i = 0, j = 0; i < CHUNK; i++) {
+                    for (; j < chunkEnds[i]; j++) {
+                        members[fill[chunk[j]]++] = c * CHUNK + i;
+                    }
+                }
+            }
+
+            boolean[] covered = new boolean[count()];
+            int coveredCount = 0;
+            for (int s = 0; s < seeds.length; s++) {
+                int best = 1;
+                for (int v = 2; v <= n; v++) {
+                    if (degree[v] > degree[best]) {
+                        best = v;
+                    }
+                }
+                seeds[s] = best;
+                for (int j = start[best]; j < start[best + 1]; j++) {
+                    int set = members[j];
+                    if (!covered[set]) {
+                        covered[set] = true;
+                        coveredCount++;
+                        int[] chunk = nodes.get(set / CHUNK);
+                        int[] chunkEnds = ends.get(set / CHUNK);
+                        int i = set % CHUNK;
+                        for (int e = i == 0 ? 0 : chunkEnds[i - 1]; e < chunkEnds[i]; e++) {
+                            degree[chunk[e]]--;
+                        }
+                    }
+                }
+            }
+            return count() == 0 ? 0 : (double) coveredCount / count();
+        }
+    }
+
+
+    // Reverse BFS from a random root over live edges, written to buffer at
+    // offset, which must have room for n more nodes. Returns the set size.
+    private int sample(SplittableRandom random, int[] buffer, int offset) {
+        int root = 1 + random.nextInt(n);
+        Workspace ws = workspaces.get();
+        int stamp = ws.next();
+        int[] mark = ws.mark;
+        int[] queue = ws.queue;
+        mark[root] = stamp;
+        queue[0] = root;
+        int tail = propagate(queue, 1, mark, stamp, random);
+        System.arraycopy(queue, 0, buffer, offset, tail);
+        return tail;
+    }
+
+
+    /**
+     * A node in the CELF queue with its last estimated marginal gain and the
+     * number of seeds selected when that estimate was made
+     */
+    private static class Candidate implements Comparable<Candidate> {
+        final int node;
+        double gain;
+        int round;
+
+
+        Candidate(int node, double gain) {
+            this.node = node;
+            this.gain = gain;
+        }
+
+
+        @Override
+        public int compareTo(Candidate other) {
+            int cmp = Double.compare(other.gain, gain);
+            return cmp != 0 ? cmp : Integer.compare(node, other.node);
+        }
+    }
+
+
+    /**
+     * Per-thread traversal buffers. A node is visited in the current
+     * traversal iff its mark equals the current stamp, so the marks never
+     * need clearing between traversals.
+     */
+    private static class Workspace {
+        final int[] mark;
+        final int[] queue;
+        int stamp;
+
+
+        Workspace(int size) {
+            mark = new int[size];
+            queue = new int[size];
+        }
+
+
+        int next() {
+            if (++stamp == 0) {
+                Arrays.fill(mark, 0);
+                stamp = 1;
+            }
+            return stamp;
+        }
+    }
+}
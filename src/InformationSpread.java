@@ -2,17 +2,76 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.sql.Array;
 import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 public class InformationSpread implements IInformationSpread {
 
 
+    /**
+     * Number of query results kept by the default cache
+     */
+    public static final int DEFAULT_CACHE_CAPACITY = 1024;
+
+    /**
+     * Node count above which the k-core decomposition runs in parallel
+     */
+    public static final int PARALLEL_CORE_NODES = 1 << 16;
+
+    private static final String SNAPSHOT_MAGIC = "SPRDGRF1";
+
     private double tau;
     Set<Integer> indices = new HashSet<Integer>();
     Graph graph;
+    private long version;
+    private final QueryCache cache;
+    private final Supplier<Graph> graphFactory;
+    private int[][] adjacency;
+    private Graph adjacencySource;
+    private long adjacencyVersion = -1;
+    private int[][] weights;
+    private long weightsVersion = -1;
+    private ComponentIndex components;
+    private long componentsVersion = -1;
+    private int[] cores;
+    private long coresVersion = -1;
+    private double spectralRadius;
+    private double[] eigenvector;
+    private long spectralVersion = -1;
+
+    /**
+     * Create an instance with the default query cache
+     */
+    public InformationSpread() {
+        this(DEFAULT_CACHE_CAPACITY);
+    }
+
+    /**
+     * @param cacheCapacity the number of query results to cache, 0 disables caching
+     */
+    public InformationSpread(int cacheCapacity) {
+        this(cacheCapacity, GraphL::new);
+    }
+
+    /**
+     * @param cacheCapacity the number of query results to cache, 0 disables caching
+     * @param graphFactory  creates the graph backend datasets are loaded into
+     */
+    public InformationSpread(int cacheCapacity, Supplier<Graph> graphFactory) {
+        cache = new QueryCache(cacheCapacity);
+        this.graphFactory = graphFactory;
+    }
 
     /**
      * Create a graph representation of the dataset. The first line of the file
@@ -26,12 +85,14 @@ public class InformationSpread implements IInformationSpread {
      */
     @Override
     public int loadGraphFromDataSet(String filePath, double tau) {
-        graph = new GraphL();
+        graph = graphFactory.get();
+        version++;
         this.tau = tau;
         int nodeCount = 1; //Graph includes one node implicitly
         int nodes = 0;
         int edges = 0;
 
+        SpreadMetrics.Timer load = SpreadMetrics.time(SpreadMetrics.Phase.LOAD);
         try {
             BufferedReader reader = new BufferedReader(new FileReader(filePath));
             String   fileData = reader.readLine();
@@ -42,33 +103,422 @@ public class InformationSpread implements IInformationSpread {
             graph.init(nodes + 1); //may need to be checked later down the line
 
 
-            while(true){
-                String data = reader.readLine();
+            int[] added = {0};
+            // One batch, so a VersionedGraph publishes the load once
+            applyEdits(() -> {
+                try {
+                    while(true){
+                        String data = reader.readLine();
 
-                if(data == null){
-                    break;
+                        if(data == null){
+                            break;
+                        }
+                        String[] dataArr = data.split(" ");
+                        int nodeStart = Integer.parseInt(dataArr[0]);
+                        int nodeEnd   = Integer.parseInt(dataArr[1]);
+                        double weight    = Double.parseDouble(dataArr[2]);
+                        if(loadEdge(nodeStart, nodeEnd, weight)) {
+                            added[0]++;
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
-                String[] dataArr = data.split(" ");
-                int nodeStart = Integer.parseInt(dataArr[0]);
-                int nodeEnd   = Integer.parseInt(dataArr[1]);
-                double weight    = Double.parseDouble(dataArr[2]);
-                if(weight >= tau) {
-                    int multWeight = (int)(weight * 100);
-                    graph.addEdge(nodeStart, nodeEnd, multWeight);
-                    graph.addEdge(nodeEnd, nodeStart, multWeight);
-                    indices.add(nodeStart);
-                    indices.add(nodeEnd);
-                    nodeCount++;
-                }
-            }
+            });
+            nodeCount += added[0];
         } catch (IOException e){
             e.printStackTrace();
+        } catch (UncheckedIOException e){
+            e.getCause().printStackTrace();
+        } finally {
+            load.close();
         }
 
         System.out.println("Created graph with nodes = " + graph.nodeCount() + " and edges = " + graph.edgeCount());
+        componentIndex();
 
         return nodeCount;
     }
+
+
+    /**
+     * Create a graph from the edges of a synthetic graph generator, keeping
+     * the edges with a weight of at least tau like loadGraphFromDataSet does
+     *
+     * @param generator the generator of the graph
+     * @param tau the transmissibility, probability of
+     *            infection given contact between a susceptible and infected individual
+     * @return the number of entries (nodes) in the dataset (graph)
+     */
+    public int loadGraphFromGenerator(GraphGenerator generator, double tau) {
+        graph = graphFactory.get();
+        version++;
+        this.tau = tau;
+        graph.init(generator.nodeCount() + 1);
+        int[] nodeCount = {1}; //Graph includes one node implicitly
+        applyEdits(() -> generator.generate((nodeStart, nodeEnd, weight) -> {
+            if (loadEdge(nodeStart, nodeEnd, weight)) {
+                nodeCount[0]++;
+            }
+        }));
+
+        System.out.println("Created graph with nodes = " + graph.nodeCount() + " and edges = " + graph.edgeCount());
+        componentIndex();
+
+        return nodeCount[0];
+    }
+
+
+    /**
+     * Write the loaded graph to a binary snapshot that loadGraphFromSnapshot
+     * reads back much faster than the .mtx it came from. Little-endian: the
+     * 8 ASCII bytes "SPRDGRF1", the node count (int), tau (double), then for
+     * every node its degree (int) and its (neighbor, weight) pairs (ints),
+     * then the number of indexed nodes (int) and their ids (ints).
+     *
+     * @param path - the file to write
+     * @return the number of bytes written
+     * @throws IOException if the file cannot be written
+     */
+    public long writeSnapshot(String path) throws IOException {
+        int[][] neighbors = adjacency();
+        int[][] edgeWeights = weights();
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put(SNAPSHOT_MAGIC.getBytes(StandardCharsets.US_ASCII));
+            buffer.putInt(neighbors.length);
+            buffer.putDouble(tau);
+            for (int v = 0; v < neighbors.length; v++) {
+                if (buffer.remaining() < 4) {
+                    written += flush(channel, buffer);
+                }
+                buffer.putInt(neighbors[v].length);
+                for (int j = 0; j < neighbors[v].length; j++) {
+                    if (buffer.remaining() < 8) {
+                        written += flush(channel, buffer);
+                    }
+                    buffer.putInt(neighbors[v][j]);
+                    buffer.putInt(edgeWeights[v][j]);
+                }
+            }
+            if (buffer.remaining() < 4) {
+                written += flush(channel, buffer);
+            }
+            buffer.putInt(indices.size());
+            for (int id : indices) {
+                if (buffer.remaining() < 4) {
+                    written += flush(channel, buffer);
+                }
+                buffer.putInt(id);
+            }
+            written += flush(channel, buffer);
+        }
+        return written;
+    }
+
+    private static int flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        int bytes = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        return bytes;
+    }
+
+
+    /**
+     * Load a graph written by writeSnapshot, with the tau it was written with
+     *
+     * @param filePath the path of the snapshot
+     * @return the number of nodes in the graph, node 0 included
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public int loadGraphFromSnapshot(String filePath) throws IOException {
+        graph = graphFactory.get();
+        version++;
+        indices = new HashSet<Integer>();
+
+        SpreadMetrics.Timer load = SpreadMetrics.time(SpreadMetrics.Phase.LOAD);
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("snapshot too large to map: " + filePath);
+            }
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                .order(ByteOrder.LITTLE_ENDIAN);
+            byte[] magic = new byte[SNAPSHOT_MAGIC.length()];
+            data.get(magic);
+            if (!SNAPSHOT_MAGIC.equals(new String(magic, StandardCharsets.US_ASCII))) {
+                throw new IOException("not a graph snapshot: " + filePath);
+            }
+            int nodes = data.getInt();
+            tau = data.getDouble();
+            graph.init(nodes);
+            applyEdits(() -> {
+                for (int v = 0; v < nodes; v++) {
+                    int degree = data.getInt();
+                    for (int j = 0; j < degree; j++) {
+                        int w = data.getInt();
+                        graph.addEdge(v, w, data.getInt());
+                    }
+                }
+            });
+            int indexed = data.getInt();
+            for (int i = 0; i < indexed; i++) {
+                indices.add(data.getInt());
+            }
+        } catch (java.nio.BufferUnderflowException e) {
+            throw new IOException("truncated graph snapshot: " + filePath, e);
+        } finally {
+            load.close();
+        }
+
+        System.out.println("Created graph with nodes = " + graph.nodeCount() + " and edges = " + graph.edgeCount());
+        componentIndex();
+
+        return graph.nodeCount();
+    }
+
+
+    // Add a dataset edge to the graph if it can transmit, return true if it was added
+    private boolean loadEdge(int nodeStart, int nodeEnd, double weight) {
+        if(weight >= tau) {
+            int multWeight = (int)(weight * 100);
+            graph.addEdge(nodeStart, nodeEnd, multWeight);
+            graph.addEdge(nodeEnd, nodeStart, multWeight);
+            indices.add(nodeStart);
+            indices.add(nodeEnd);
+            return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Add an undirected edge between v and w and invalidate cached results
+     *
+     * @param v   - one end of the edge
+     * @param w   - the other end of the edge
+     * @param wgt - the weight of the edge
+     */
+    public void addEdge(int v, int w, int wgt) {
+        if (wgt == 0) {
+            return; // Graphs can't store a weight of 0
+        }
+        applyEdits(() -> {
+            graph.addEdge(v, w, wgt);
+            graph.addEdge(w, v, wgt);
+        });
+        indices.add(v);
+        indices.add(w);
+        version++;
+    }
+
+
+    /**
+     * Remove the undirected edge between v and w and invalidate cached results
+     *
+     * @param v - one end of the edge
+     * @param w - the other end of the edge
+     */
+    public void removeEdge(int v, int w) {
+        applyEdits(() -> {
+            graph.removeEdge(v, w);
+            graph.removeEdge(w, v);
+        });
+        version++;
+    }
+
+
+    // Run several graph writes, e.g. both directions of an edge or a bulk
+    // removal; on a VersionedGraph, readers see all of them or none of them
+    private void applyEdits(Runnable edits) {
+        if (graph instanceof VersionedGraph) {
+            ((VersionedGraph) graph).batch(g -> edits.run());
+        } else {
+            edits.run();
+        }
+    }
+
+
+    // The graph to read many nodes from: on a VersionedGraph one snapshot,
+    // so that writes meanwhile cannot mix two versions into the result
+    private Graph readView() {
+        return graph instanceof VersionedGraph ? ((VersionedGraph) graph).snapshot() : graph;
+    }
+
+
+    /**
+     * Independent copy of the loaded graph and its settings, for analyses
+     * that must not see or make changes to this one, e.g. running
+     * removal-based queries on another thread while this graph is updated.
+     * Must be called from the thread that writes to this graph. On a
+     * VersionedGraph the copy shares the current snapshot and costs O(n);
+     * other backends are copied edge by edge.
+     *
+     * @return the copy, backed by a VersionedGraph
+     */
+    public InformationSpread fork() {
+        VersionedGraph copy = graph instanceof VersionedGraph
+            ? new VersionedGraph(((VersionedGraph) graph).snapshot()) : VersionedGraph.copyOf(graph);
+        InformationSpread fork = new InformationSpread(cache.capacity(), graphFactory);
+        fork.graph = copy;
+        fork.tau = tau;
+        fork.indices.addAll(indices);
+        return fork;
+    }
+
+
+    /**
+     * @return a counter that changes every time the graph is loaded or modified
+     */
+    public long graphVersion() {
+        return version;
+    }
+
+
+    /**
+     * @return the transmissibility the graph was loaded with
+     */
+    public double tau() {
+        return tau;
+    }
+
+
+    /**
+     * Neighbor arrays of every node for the current graph version, shared
+     * between callers and rebuilt only after the graph changes. Callers must
+     * not modify the returned arrays. On a VersionedGraph every node is read
+     * from the same snapshot.
+     *
+     * @return the neighbors of node i at index i
+     */
+    int[][] adjacency() {
+        if (adjacencyVersion != version) {
+            Graph source = readView();
+            int n = source.nodeCount();
+            int[][] neighbors = new int[n][];
+            for (int i = 0; i < n; i++) {
+                neighbors[i] = source.neighbors(i);
+            }
+            SpreadMetrics.count(SpreadMetrics.Counter.NEIGHBORS_CALLS, n);
+            adjacency = neighbors;
+            adjacencySource = source;
+            adjacencyVersion = version;
+        }
+        return adjacency;
+    }
+
+
+    /**
+     * Edge weights matching adjacency() for the current graph version, shared
+     * between callers and rebuilt only after the graph changes. Callers must
+     * not modify the returned arrays.
+     *
+     * @return the weight of the edge from i to adjacency()[i][j] at [i][j]
+     */
+    int[][] weights() {
+        if (weightsVersion != version) {
+            int[][] neighbors = adjacency();
+            // The same version of the graph the neighbors were read from
+            Graph source = adjacencySource;
+            int[][] edgeWeights = new int[neighbors.length][];
+            for (int i = 0; i < neighbors.length; i++) {
+                edgeWeights[i] = new int[neighbors[i].length];
+                for (int j = 0; j < neighbors[i].length; j++) {
+                    edgeWeights[i][j] = source.weight(i, neighbors[i][j]);
+                }
+            }
+            weights = edgeWeights;
+            weightsVersion = version;
+        }
+        return weights;
+    }
+
+
+    /**
+     * Connected components of the current graph version, rebuilt only after
+     * the graph changes
+     *
+     * @return the component index
+     */
+    public ComponentIndex componentIndex() {
+        if (componentsVersion != version) {
+            components = new ComponentIndex(readView());
+            componentsVersion = version;
+        }
+        return components;
+    }
+
+
+    /**
+     * Core number of every node for the current graph version, rebuilt only
+     * after the graph changes. Graphs with more than PARALLEL_CORE_NODES
+     * nodes are decomposed in parallel.
+     *
+     * @return the core number of node i at index i
+     */
+    int[] coreNumbers() {
+        if (coresVersion != version) {
+            int[][] neighbors = adjacency();
+            cores = neighbors.length > PARALLEL_CORE_NODES
+                ? CoreDecomposition.parallel(neighbors) : CoreDecomposition.sequential(neighbors);
+            coresVersion = version;
+        }
+        return cores;
+    }
+
+
+    /**
+     * @param n the node
+     * @return the core number of n, the largest k such that n is in the
+     *         k-core, or -1 if n is not in the graph
+     */
+    public int coreNumber(int n) {
+        if (n <= 0 || n >= graph.nodeCount()) {
+            return -1;
+        }
+        return coreNumbers()[n];
+    }
+
+
+    /**
+     * @param n the node
+     * @return the number of nodes that can be reached from n, n included,
+     *         or 0 if n is not in the graph
+     */
+    public int componentSize(int n) {
+        if (n <= 0 || n >= graph.nodeCount()) {
+            return 0;
+        }
+        return componentIndex().size(n);
+    }
+
+
+    /**
+     * Tell without a traversal whether generations(seed, threshold) can
+     * return a spread level
+     *
+     * @param seed      - the id of the seed node
+     * @param threshold - the percentage of nodes to reach
+     * @return true iff the seed's component holds threshold percent of the nodes
+     */
+    public boolean isReachable(int seed, double threshold) {
+        if (seed <= 0 || seed >= graph.nodeCount() || threshold < 0 || threshold > 1) {
+            return false;
+        }
+        return ((double) componentSize(seed) / (graph.nodeCount() - 1)) >= threshold;
+    }
+
+
+    /**
+     * @return the cache holding generations, path and clustCoeff results
+     */
+    public QueryCache queryCache() {
+        return cache;
+    }
     
     
     /**
@@ -80,11 +530,19 @@ public class InformationSpread implements IInformationSpread {
     @Override
     public int[] getNeighbors(int id) {
         List<Integer> neighbors = new ArrayList<Integer>();
+        long calls = 0;
         for(int i = 1; i < graph.nodeCount(); i++){
-            if(graph.hasEdge(id, i) || graph.hasEdge(i, id)){
+            boolean edge = graph.hasEdge(id, i);
+            calls++;
+            if(!edge){
+                edge = graph.hasEdge(i, id);
+                calls++;
+            }
+            if(edge){
                 neighbors.add(i);
             }
         }
+        SpreadMetrics.count(SpreadMetrics.Counter.HAS_EDGE_CALLS, calls);
 
         if(neighbors.contains(0)){
             neighbors.clear();
@@ -108,45 +566,92 @@ public class InformationSpread implements IInformationSpread {
      */
     @Override
     public Collection<Integer> path(int source, int destination) {
-
-        int n = graph.nodeCount();
-        for (int i = 1; i < n; i++) {
-            graph.setValue(i, false);
+        List<Object> key = List.of("path", source, destination);
+        @SuppressWarnings("unchecked")
+        List<Integer> cached = (List<Integer>) cache.get(version, key);
+        if (cached == null) {
+            cached = Collections.unmodifiableList(computePath(source, destination));
+            cache.put(version, key, cached);
         }
+        return new ArrayList<Integer>(cached);
+    }
 
-        List<Integer> path = new ArrayList<Integer>();
-        Integer[] distances = new Integer[n];
-        Integer[] predictions = new Integer[n];
-
-        for(int i = 0; i < n; i++){
-            predictions[i] = 0;
+    private List<Integer> computePath(int source, int destination) {
+        if (!componentIndex().connected(source, destination)) {
+            List<Integer> path = new ArrayList<Integer>();
+            path.add(source);
+            return path;
         }
+        return pathTo(pathTree(adjacency(), weights(), source), source, destination);
+    }
 
-        for (int i = 1; i < n; i++) {
-            distances[i] = Integer.MAX_VALUE;
-        }
-        distances[source] = 0;
 
-        Queue<Integer> queue = new LinkedList<Integer>();
-        graph.setValue(source, true);
-        queue.add(source);
+    /**
+     * Predecessor of every node on the path from source that path() follows,
+     * so that all paths from one source can be read off a single traversal.
+     * Only reads the arrays it is given, so trees can be built from several
+     * threads.
+     *
+     * @param neighbors   - the adjacency snapshot of the current graph
+     * @param edgeWeights - the weights of the same snapshot, see weights()
+     * @param source      - the id of the origin node
+     * @return the predecessor of node i at index i, 0 for the source and for
+     *         nodes that cannot be reached
+     */
+    int[] pathTree(int[][] neighbors, int[][] edgeWeights, int source) {
+        SpreadMetrics.Timer traversal = SpreadMetrics.time(SpreadMetrics.Phase.TRAVERSAL);
+        try {
+            int n = neighbors.length;
+            boolean[] visited = new boolean[n];
+            int[] distances = new int[n];
+            int[] predecessors = new int[n];
+            int[] queue = new int[n];
+            int head = 0;
+            int tail = 0;
+            long scanned = 0;
 
-        while (queue.size() > 0) {
-            Integer currentIndex = queue.poll();
+            Arrays.fill(distances, Integer.MAX_VALUE);
+            distances[source] = 0;
+            visited[source] = true;
+            queue[tail++] = source;
 
-            for (Integer neighborIndex : graph.neighbors(currentIndex)) {
-                if (!((boolean)graph.getValue(neighborIndex))) {
-                    queue.add(neighborIndex);
-                    graph.setValue(neighborIndex, true);
-                }
-                if (distances[currentIndex] + graph.weight(currentIndex, neighborIndex) <= distances[neighborIndex]) {
-                    predictions[neighborIndex] = currentIndex;
-                    distances[neighborIndex] = distances[currentIndex] + graph.weight(currentIndex, neighborIndex);
+            while (head < tail) {
+                int currentIndex = queue[head++];
+                int[] adjacent = neighbors[currentIndex];
+                int[] adjacentWeights = edgeWeights[currentIndex];
+                scanned += adjacent.length;
+                for (int j = 0; j < adjacent.length; j++) {
+                    int neighborIndex = adjacent[j];
+                    if (!visited[neighborIndex]) {
+                        visited[neighborIndex] = true;
+                        queue[tail++] = neighborIndex;
+                    }
+                    int distance = distances[currentIndex] + adjacentWeights[j];
+                    if (distance <= distances[neighborIndex]) {
+                        predecessors[neighborIndex] = currentIndex;
+                        distances[neighborIndex] = distance;
+                    }
                 }
             }
+
+            SpreadMetrics.count(SpreadMetrics.Counter.NODES_DEQUEUED, head);
+            SpreadMetrics.count(SpreadMetrics.Counter.EDGES_SCANNED, scanned);
+            return predecessors;
+        } finally {
+            traversal.close();
         }
+    }
+
 
-        for (int j = destination; predictions[j] != 0; j = predictions[j]) {
+    /**
+     * @param predecessors - the path tree of source
+     * @param source       - the id of the origin node
+     * @param destination  - the id of the destination node
+     * @return the nodes to follow from source to destination, both included
+     */
+    static List<Integer> pathTo(int[] predecessors, int source, int destination) {
+        List<Integer> path = new ArrayList<Integer>();
+        for (int j = destination; predecessors[j] != 0; j = predecessors[j]) {
             path.add(j); //Implicit addition of destination
         }
 
@@ -167,6 +672,7 @@ public class InformationSpread implements IInformationSpread {
         for(Integer id : indices){
             totalDegree += degree(id);
         }
+        SpreadMetrics.count(SpreadMetrics.Counter.NEIGHBORS_CALLS, indices.size());
         return (double)totalDegree / (graph.nodeCount() - 1);
     }
     
@@ -184,6 +690,43 @@ public class InformationSpread implements IInformationSpread {
     
     
     
+    /**
+     * Largest eigenvalue of the adjacency matrix, rebuilt only after the
+     * graph changes. Power iteration starts from the eigenvector of the last
+     * graph it ran on, which after a few removals is close to the new one.
+     *
+     * @return the spectral radius of the graph
+     */
+    public double spectralRadius() {
+        if (spectralVersion != version) {
+            SpreadMetrics.Timer spectral = SpreadMetrics.time(SpreadMetrics.Phase.SPECTRAL);
+            try {
+                SpectralRadius power = new SpectralRadius(adjacency());
+                spectralRadius = power.compute(eigenvector, SpectralRadius.DEFAULT_TOLERANCE,
+                    SpectralRadius.DEFAULT_MAX_ITERATIONS);
+                eigenvector = power.eigenvector();
+            } finally {
+                spectral.close();
+            }
+            spectralVersion = version;
+        }
+        return spectralRadius;
+    }
+
+
+
+    /**
+     * Compute the basic reproduction number R0 from the spectral radius, the
+     * epidemic threshold of heavy-tailed graphs being 1 / lambda_max
+     * R0 = TRANSMISSIBILITY (tau) * lambda_max
+     * @return the spectral basic reproduction number
+     */
+    public double rNumberSpectral() {
+        return tau * spectralRadius();
+    }
+
+
+
     /**
      * Given a specific node id (seed) this method will return the number of
      * "spreadLevels" necessary to reach a percentage (threshold) of the nodes
@@ -197,58 +740,247 @@ public class InformationSpread implements IInformationSpread {
 
     @Override
     public int generations(int seed, double threshold) {
+        List<Object> key = List.of("generations", seed, threshold);
+        Integer cached = (Integer) cache.get(version, key);
+        if (cached == null) {
+            cached = computeGenerations(seed, threshold);
+            cache.put(version, key, cached);
+        }
+        return cached;
+    }
 
+    private int computeGenerations(int seed, double threshold) {
         int n = graph.nodeCount();
         if (seed <= 0 || seed >= n || threshold < 0 || threshold > 1) {
             return -1;
         } else if (threshold == 0) {
             return 0;
+        } else if (!isReachable(seed, threshold)) {
+            return -1;
+        }
+        return spreadLevel(spreadProfile(seed, true), threshold);
+    }
+
+
+    /**
+     * Run a single BFS from seed and record how many nodes have been reached
+     * after each spread level. Entry 0 is the seed alone and entry i is the
+     * number of nodes within i levels of the seed, so the last entry is the
+     * size of the seed's component.
+     *
+     * @param seed    - the id of the seed node
+     * @param memoize - true to keep the profile in the query cache
+     * @return the cumulative number of reached nodes per level, or an empty
+     *         array if the seed is not in the graph
+     */
+    public int[] spreadProfile(int seed, boolean memoize) {
+        int n = graph.nodeCount();
+        if (seed <= 0 || seed >= n) {
+            return new int[0];
+        }
+        if (!memoize) {
+            return computeSpreadProfile(seed);
+        }
+        List<Object> key = List.of("spreadProfile", seed);
+        int[] cached = (int[]) cache.get(version, key);
+        if (cached == null) {
+            cached = computeSpreadProfile(seed);
+            cache.put(version, key, cached);
+        }
+        return cached.clone();
+    }
+
+    private int[] computeSpreadProfile(int seed) {
+        SpreadMetrics.Timer traversal = SpreadMetrics.time(SpreadMetrics.Phase.TRAVERSAL);
+        try {
+            return bfsProfile(seed);
+        } finally {
+            traversal.close();
         }
+    }
+
+    private int[] bfsProfile(int seed) {
+        int n = graph.nodeCount();
+        boolean[] visited = new boolean[n];
+        int[] queue = new int[n];
+        int[] profile = new int[n];
+        int head = 0;
+        int tail = 0;
+        int levels = 0;
+        long scanned = 0;
 
-        for (int i = 1; i < n; i++) {
-            graph.setValue(i, false);
+        visited[seed] = true;
+        queue[tail++] = seed;
+        profile[levels++] = tail;
+        while (head < tail) {
+            int levelEnd = tail;
+            while (head < levelEnd) {
+                int[] neighbors = graph.neighbors(queue[head++]);
+                scanned += neighbors.length;
+                for (int v : neighbors) {
+                    if (!visited[v]) {
+                        visited[v] = true;
+                        queue[tail++] = v;
+                    }
+                }
+            }
+            if (tail > levelEnd) {
+                profile[levels++] = tail;
+            }
         }
+        SpreadMetrics.count(SpreadMetrics.Counter.NODES_DEQUEUED, head);
+        SpreadMetrics.count(SpreadMetrics.Counter.EDGES_SCANNED, scanned);
+        SpreadMetrics.count(SpreadMetrics.Counter.NEIGHBORS_CALLS, head);
+        return Arrays.copyOf(profile, levels);
+    }
 
-        int level = 0;
-        int currentNeighborsCount = 0;
-        int currentLevel = 1;
-        int nodeCount = 1;
 
+    /**
+     * Spread profiles of many seeds at once. Seeds are taken 64 at a time and
+     * each group is searched in one pass over the graph with one bit per seed
+     * in a word per node (multi-source BFS, Then et al. 2014), so the seeds of
+     * a group share every edge scan. Groups run in parallel. The profiles are
+     * memoized like spreadProfile(seed, true).
+     *
+     * @param seeds - the ids of the seed nodes
+     * @return the profile of seeds[i] at index i, empty if that seed is not
+     *         in the graph
+     */
+    public int[][] spreadProfiles(int[] seeds) {
+        int n = graph.nodeCount();
+        Map<Integer, int[]> found = new HashMap<Integer, int[]>();
+        int[] missing = new int[seeds.length];
+        int count = 0;
+        for (int seed : seeds) {
+            if (seed <= 0 || seed >= n || found.containsKey(seed)) {
+                continue;
+            }
+            int[] cached = (int[]) cache.get(version, List.of("spreadProfile", seed));
+            found.put(seed, cached);
+            if (cached == null) {
+                missing[count++] = seed;
+            }
+        }
 
-        if (((double)nodeCount / (n - 1)) >= threshold) {
-            return level;
+        if (count > 0) {
+            int[][] neighbors = adjacency();
+            int[][] computed = new int[count][];
+            int[] searched = missing;
+            int total = count;
+            int groups = (total + Long.SIZE - 1) / Long.SIZE;
+            SpreadMetrics.Timer traversal = SpreadMetrics.time(SpreadMetrics.Phase.TRAVERSAL);
+            try {
+                IntStream.range(0, groups).parallel().forEach(g -> multiSourceProfiles(neighbors, searched,
+                    g * Long.SIZE, Math.min(total, (g + 1) * Long.SIZE), computed));
+            } finally {
+                traversal.close();
+            }
+            for (int i = 0; i < count; i++) {
+                found.put(missing[i], computed[i]);
+                cache.put(version, List.of("spreadProfile", missing[i]), computed[i]);
+            }
         }
 
-        Queue<Integer> queue = new LinkedList<Integer>();
-        graph.setValue(seed, true);
-        queue.add(seed);
+        int[][] profiles = new int[seeds.length][];
+        for (int i = 0; i < seeds.length; i++) {
+            int[] profile = found.get(seeds[i]);
+            profiles[i] = profile == null ? new int[0] : profile.clone();
+        }
+        return profiles;
+    }
 
-        while (!queue.isEmpty()) {
-            int current = queue.poll();
-            currentNeighborsCount += getNeighbors(current).length;
-            int[] neighbors = getNeighbors(current);
+    // Profiles of seeds[from .. to), at most 64 seeds; bit i of a node's
+    // words stands for seeds[from + i]
+    static void multiSourceProfiles(int[][] neighbors, int[] seeds, int from, int to, int[][] profiles) {
+        int n = neighbors.length;
+        int width = to - from;
+        long[] seen = new long[n];
+        long[] frontier = new long[n];
+        long[] next = new long[n];
+        int[] reached = new int[width];
+        int[][] levels = new int[width][];
+        int[] lengths = new int[width];
+        for (int i = 0; i < width; i++) {
+            int seed = seeds[from + i];
+            seen[seed] |= 1L << i;
+            frontier[seed] |= 1L << i;
+            reached[i] = 1;
+            levels[i] = new int[8];
+            levels[i][lengths[i]++] = 1;
+        }
 
-            for (Integer v : neighbors) {
-                if ((boolean) graph.getValue(v)) {
-                    currentNeighborsCount--;
-                } else {
-                    queue.add(v);
-                    nodeCount++;
-                    graph.setValue(v, true);
+        long dequeued = 0;
+        long scanned = 0;
+        long grown;
+        do {
+            for (int v = 0; v < n; v++) {
+                long bits = frontier[v];
+                if (bits != 0) {
+                    for (int w : neighbors[v]) {
+                        next[w] |= bits;
+                    }
+                    dequeued++;
+                    scanned += neighbors[v].length;
                 }
             }
-
-            currentLevel -= 1;
-            if (currentLevel == 0) {
-                level++;
-                if (((double) nodeCount / (graph.nodeCount() - 1)) >= threshold) {
-                    return level;
+            // The new frontier of a seed is what it reached for the first time
+            grown = 0;
+            for (int v = 0; v < n; v++) {
+                long bits = next[v] & ~seen[v];
+                next[v] = 0;
+                frontier[v] = bits;
+                if (bits != 0) {
+                    seen[v] |= bits;
+                    grown |= bits;
+                    for (long b = bits; b != 0; b &= b - 1) {
+                        reached[Long.numberOfTrailingZeros(b)]++;
+                    }
                 }
-                currentLevel += currentNeighborsCount;
-                currentNeighborsCount = 0;
+            }
+            for (long b = grown; b != 0; b &= b - 1) {
+                int i = Long.numberOfTrailingZeros(b);
+                if (lengths[i] == levels[i].length) {
+                    levels[i] = Arrays.copyOf(levels[i], 2 * lengths[i]);
+                }
+                levels[i][lengths[i]++] = reached[i];
+            }
+        } while (grown != 0);
+
+        for (int i = 0; i < width; i++) {
+            profiles[from + i] = Arrays.copyOf(levels[i], lengths[i]);
+        }
+        SpreadMetrics.count(SpreadMetrics.Counter.NODES_DEQUEUED, dequeued);
+        SpreadMetrics.count(SpreadMetrics.Counter.EDGES_SCANNED, scanned);
+    }
+
+
+    /**
+     * Answer a generations query from a spread profile by binary search
+     *
+     * @param profile   - the cumulative reached count per level of a seed
+     * @param threshold - the percentage of nodes to reach
+     * @return the number of spread levels necessary to reach threshold percent
+     *         nodes in the graph or -1 if the threshold is never reached
+     */
+    public int spreadLevel(int[] profile, double threshold) {
+        if (profile.length == 0 || threshold < 0 || threshold > 1) {
+            return -1;
+        }
+        int total = graph.nodeCount() - 1;
+        int low = 0;
+        int high = profile.length - 1;
+        if (((double) profile[high] / total) < threshold) {
+            return -1;
+        }
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (((double) profile[mid] / total) >= threshold) {
+                high = mid;
+            } else {
+                low = mid + 1;
             }
         }
-        return -1;
+        return low;
     }
 
     /**
@@ -267,10 +999,16 @@ public class InformationSpread implements IInformationSpread {
     @Override
     public Collection<Integer> degreeNodes(int d) {
         List<Integer> degreeMatch = new ArrayList<Integer>();
-        for(Integer id : indices){
-            if(degree(id) == d) {
-                degreeMatch.add(id);
+        SpreadMetrics.Timer selection = SpreadMetrics.time(SpreadMetrics.Phase.SELECTION);
+        try {
+            for(Integer id : indices){
+                if(degree(id) == d) {
+                    degreeMatch.add(id);
+                }
             }
+            SpreadMetrics.count(SpreadMetrics.Counter.NEIGHBORS_CALLS, indices.size());
+        } finally {
+            selection.close();
         }
         return degreeMatch;
     }
@@ -301,14 +1039,21 @@ public class InformationSpread implements IInformationSpread {
         } else if(nodesToRemove.contains(seed)){
             return 0;
         }
-        for(Integer currentIndexToRemove : nodesToRemove) {
-            int[] neighbors = graph.neighbors(currentIndexToRemove);
-            for(Integer edge : neighbors){
-                if(nodesToRemove.contains(edge)) {
-                    graph.removeEdge(currentIndexToRemove, edge);
-                    graph.removeEdge(edge, currentIndexToRemove);
+        SpreadMetrics.Timer removal = SpreadMetrics.time(SpreadMetrics.Phase.REMOVAL);
+        try {
+            applyEdits(() -> {
+                for(Integer currentIndexToRemove : nodesToRemove) {
+                    int[] neighbors = graph.neighbors(currentIndexToRemove);
+                    for(Integer edge : neighbors){
+                        if(nodesToRemove.contains(edge)) {
+                            removeEdge(currentIndexToRemove, edge);
+                        }
+                    }
                 }
-            }
+            });
+            SpreadMetrics.count(SpreadMetrics.Counter.NEIGHBORS_CALLS, nodesToRemove.size());
+        } finally {
+            removal.close();
         }
         return generations(seed, threshold);
     }
@@ -324,12 +1069,19 @@ public class InformationSpread implements IInformationSpread {
     @Override
     public double rNumberDegree(int d) {
         Collection<Integer> nodesToRemove = degreeNodes(d);
-        for(Integer currentIndexToRemove : nodesToRemove) {
-            int[] neighbors = graph.neighbors(currentIndexToRemove);
-            for(Integer edge : neighbors){
-                graph.removeEdge(currentIndexToRemove, edge);
-                graph.removeEdge(edge, currentIndexToRemove);
-            }
+        SpreadMetrics.Timer removal = SpreadMetrics.time(SpreadMetrics.Phase.REMOVAL);
+        try {
+            applyEdits(() -> {
+                for(Integer currentIndexToRemove : nodesToRemove) {
+                    int[] neighbors = graph.neighbors(currentIndexToRemove);
+                    for(Integer edge : neighbors){
+                        removeEdge(currentIndexToRemove, edge);
+                    }
+                }
+            });
+            SpreadMetrics.count(SpreadMetrics.Counter.NEIGHBORS_CALLS, nodesToRemove.size());
+        } finally {
+            removal.close();
         }
         return rNumber();
     }
@@ -344,31 +1096,81 @@ public class InformationSpread implements IInformationSpread {
      */
     @Override
     public double clustCoeff(int n) {
+        List<Object> key = List.of("clustCoeff", n);
+        Double cached = (Double) cache.get(version, key);
+        if (cached == null) {
+            SpreadMetrics.Timer clustering = SpreadMetrics.time(SpreadMetrics.Phase.CLUSTERING);
+            try {
+                cached = computeClustCoeff(n);
+            } finally {
+                clustering.close();
+            }
+            cache.put(version, key, cached);
+        }
+        return cached;
+    }
+
+    private double computeClustCoeff(int n) {
         int degree = degree(n);
+        SpreadMetrics.count(SpreadMetrics.Counter.NEIGHBORS_CALLS);
         if(n <= 0 || n >= graph.nodeCount()){
             return -1;
         }
         if(degree < 2) {
             return 0;
         }
-        int[] neighbors = graph.neighbors(n);
-        int connectedness = 0;
-        for(int i = 0; i < neighbors.length; i++){
-            int connection1 = neighbors[i];
-            for(int j = 0; j < neighbors.length; j++) {
-                int connection2 = neighbors[j];
-                //System.out.println("Checking edge between " + connection1 + " and " + connection2 + " = " + graph.hasEdge(connection1, connection2));
-                if (graph.hasEdge(connection1, connection2)) {
-                    connectedness++;
-                }
-            }
-
-        }
+        int connectedness = connectedness(n);
         return ((double)connectedness) / (degree * (degree - 1));
     }
     
     
     
+    // Number of ordered pairs of neighbors of n that are connected, summed
+    // as the neighbors each neighbor u shares with n. Uses the adjacency
+    // snapshot, so a sweep over all nodes walks the graph only once.
+    private int connectedness(int n) {
+        return connectedness(adjacency(), n);
+    }
+
+    static int connectedness(int[][] neighbors, int n) {
+        int connectedness = 0;
+        for(int neighbor : neighbors[n]){
+            connectedness += Intersection.count(neighbors[n], neighbors[neighbor]);
+        }
+        return connectedness;
+    }
+
+
+
+    /**
+     * @param n the node
+     * @return the number of triangles n belongs to, or 0 if n is not in the graph
+     */
+    public int triangles(int n) {
+        if(n <= 0 || n >= graph.nodeCount()){
+            return 0;
+        }
+        return connectedness(n) / 2;
+    }
+
+
+
+    /**
+     * @param v - one node
+     * @param w - another node
+     * @return the number of neighbors v and w have in common, or 0 if either
+     *         is not in the graph
+     */
+    public int commonNeighbors(int v, int w) {
+        if(v <= 0 || w <= 0 || v >= graph.nodeCount() || w >= graph.nodeCount()){
+            return 0;
+        }
+        SpreadMetrics.count(SpreadMetrics.Counter.NEIGHBORS_CALLS, 2);
+        return Intersection.count(graph.neighbors(v), graph.neighbors(w));
+    }
+
+
+
     /**
      * precision: 0.01 (use when comparing CC values)
      * @param low - the lower bound (inclusive) of the cc range
@@ -379,11 +1181,16 @@ public class InformationSpread implements IInformationSpread {
     @Override
     public Collection<Integer> clustCoeffNodes(double low, double high) {
         List<Integer> coeffs = new ArrayList<Integer>();
-        for(Integer node : indices){
-            double clustCoeff = clustCoeff(node);
-            if(((int)(clustCoeff * 100)) >= ((int)(low*100)) && ((int)(clustCoeff * 100)) <= ((int)(high * 100))){
-                coeffs.add(node);
+        SpreadMetrics.Timer selection = SpreadMetrics.time(SpreadMetrics.Phase.SELECTION);
+        try {
+            for(Integer node : indices){
+                double clustCoeff = clustCoeff(node);
+                if(((int)(clustCoeff * 100)) >= ((int)(low*100)) && ((int)(clustCoeff * 100)) <= ((int)(high * 100))){
+                    coeffs.add(node);
+                }
             }
+        } finally {
+            selection.close();
         }
         return coeffs;
     }
@@ -417,13 +1224,19 @@ public class InformationSpread implements IInformationSpread {
             return 0;
         }
 
-        for(Integer current : indices){
-            if(nodesToRemove.contains(current)){
-                for(Integer neighbor : getNeighbors(current)){
-                    graph.removeEdge(current, neighbor);
-                    graph.removeEdge(neighbor, current);
+        SpreadMetrics.Timer removal = SpreadMetrics.time(SpreadMetrics.Phase.REMOVAL);
+        try {
+            applyEdits(() -> {
+                for(Integer current : indices){
+                    if(nodesToRemove.contains(current)){
+                        for(Integer neighbor : getNeighbors(current)){
+                            removeEdge(current, neighbor);
+                        }
+                    }
                 }
-            }
+            });
+        } finally {
+            removal.close();
         }
         return generations(seed, threshold);
     }
@@ -443,14 +1256,21 @@ public class InformationSpread implements IInformationSpread {
     @Override
     public double rNumberCC(double low, double high) {
         Collection<Integer> nodesToRemove = clustCoeffNodes(low, high);
-        for(Integer currentIndexToRemove : nodesToRemove) {
-            int[] neighbors = graph.neighbors(currentIndexToRemove);
-            for(Integer edge : neighbors){
-                if(nodesToRemove.contains(edge)) {
-                    graph.removeEdge(currentIndexToRemove, edge);
-                    graph.removeEdge(edge, currentIndexToRemove);
+        SpreadMetrics.Timer removal = SpreadMetrics.time(SpreadMetrics.Phase.REMOVAL);
+        try {
+            applyEdits(() -> {
+                for(Integer currentIndexToRemove : nodesToRemove) {
+                    int[] neighbors = graph.neighbors(currentIndexToRemove);
+                    for(Integer edge : neighbors){
+                        if(nodesToRemove.contains(edge)) {
+                            removeEdge(currentIndexToRemove, edge);
+                        }
+                    }
                 }
-            }
+            });
+            SpreadMetrics.count(SpreadMetrics.Counter.NEIGHBORS_CALLS, nodesToRemove.size());
+        } finally {
+            removal.close();
         }
         return rNumber();
     }
@@ -470,12 +1290,18 @@ public class InformationSpread implements IInformationSpread {
         List<Integer> nodesToRemove = new ArrayList<Integer>();
 
 
-        for(Integer node : indices){
-            double degree = degree(node);
-            BigDecimal clusterCoeff = new BigDecimal(clustCoeff(node)).setScale(2, RoundingMode.DOWN);
-            if(degree >= lowBoundDegree && clusterCoeff.doubleValue() <= upBoundCC){
-                nodesToRemove.add(node);
+        SpreadMetrics.Timer selection = SpreadMetrics.time(SpreadMetrics.Phase.SELECTION);
+        try {
+            for(Integer node : indices){
+                double degree = degree(node);
+                BigDecimal clusterCoeff = new BigDecimal(clustCoeff(node)).setScale(2, RoundingMode.DOWN);
+                if(degree >= lowBoundDegree && clusterCoeff.doubleValue() <= upBoundCC){
+                    nodesToRemove.add(node);
+                }
             }
+            SpreadMetrics.count(SpreadMetrics.Counter.NEIGHBORS_CALLS, indices.size());
+        } finally {
+            selection.close();
         }
         return nodesToRemove;
     }
@@ -508,14 +1334,21 @@ public class InformationSpread implements IInformationSpread {
         } else if(nodesToRemove.contains(seed)){
             return 0;
         }
-        for(Integer currentIndexToRemove : nodesToRemove) {
-            int[] neighbors = graph.neighbors(currentIndexToRemove);
-            for(Integer edge : neighbors){
-                if(nodesToRemove.contains(edge)) {
-                    graph.removeEdge(currentIndexToRemove, edge);
-                    graph.removeEdge(edge, currentIndexToRemove);
+        SpreadMetrics.Timer removal = SpreadMetrics.time(SpreadMetrics.Phase.REMOVAL);
+        try {
+            applyEdits(() -> {
+                for(Integer currentIndexToRemove : nodesToRemove) {
+                    int[] neighbors = graph.neighbors(currentIndexToRemove);
+                    for(Integer edge : neighbors){
+                        if(nodesToRemove.contains(edge)) {
+                            removeEdge(currentIndexToRemove, edge);
+                        }
+                    }
                 }
-            }
+            });
+            SpreadMetrics.count(SpreadMetrics.Counter.NEIGHBORS_CALLS, nodesToRemove.size());
+        } finally {
+            removal.close();
         }
         return generations(seed, threshold);
     }
@@ -535,14 +1368,194 @@ public class InformationSpread implements IInformationSpread {
     @Override
     public double rNumberDegCC(int lowBoundDegree, double upBoundCC) {
         Collection<Integer> nodesToRemove = highDegLowCCNodes(lowBoundDegree, upBoundCC);
-        for(Integer currentIndexToRemove : nodesToRemove) {
-            int[] neighbors = graph.neighbors(currentIndexToRemove);
-            for(Integer edge : neighbors){
-                graph.removeEdge(currentIndexToRemove, edge);
-                graph.removeEdge(edge, currentIndexToRemove);
+        SpreadMetrics.Timer removal = SpreadMetrics.time(SpreadMetrics.Phase.REMOVAL);
+        try {
+            applyEdits(() -> {
+                for(Integer currentIndexToRemove : nodesToRemove) {
+                    int[] neighbors = graph.neighbors(currentIndexToRemove);
+                    for(Integer edge : neighbors){
+                        removeEdge(currentIndexToRemove, edge);
+                    }
+                }
+            });
+            SpreadMetrics.count(SpreadMetrics.Counter.NEIGHBORS_CALLS, nodesToRemove.size());
+        } finally {
+            removal.close();
+        }
+        return rNumber();
+    }
+
+
+    // -- Betweenness
+    /**
+     * Compute the basic reproduction number R0 when the nodes with the
+     * highest betweenness centrality are removed. Betweenness is estimated
+     * from a sample of BFS sources, see Betweenness.sampled.
+     *
+     * @param count   - the number of nodes to remove
+     * @param samples - the number of sampled sources
+     * @return the basic reproduction number
+     */
+    public double rNumberBetweenness(int count, int samples) {
+        int[] nodesToRemove;
+        SpreadMetrics.Timer selection = SpreadMetrics.time(SpreadMetrics.Phase.SELECTION);
+        try {
+            nodesToRemove = Betweenness.top(new Betweenness(this).sampled(samples, 0), count);
+        } finally {
+            selection.close();
+        }
+        SpreadMetrics.Timer removal = SpreadMetrics.time(SpreadMetrics.Phase.REMOVAL);
+        try {
+            applyEdits(() -> {
+                for(int currentIndexToRemove : nodesToRemove) {
+                    int[] neighbors = graph.neighbors(currentIndexToRemove);
+                    for(Integer edge : neighbors){
+                        removeEdge(currentIndexToRemove, edge);
+                    }
+                }
+            });
+            SpreadMetrics.count(SpreadMetrics.Counter.NEIGHBORS_CALLS, nodesToRemove.length);
+        } finally {
+            removal.close();
+        }
+        return rNumber();
+    }
+
+
+    // -- k-core
+    /**
+     * @param k - the lowest core number (inclusive)
+     * @return a collection of nodes in the k-core, i.e. with a core number of at least k
+     */
+    public Collection<Integer> coreNodes(int k) {
+        List<Integer> coreMatch = new ArrayList<Integer>();
+        SpreadMetrics.Timer selection = SpreadMetrics.time(SpreadMetrics.Phase.SELECTION);
+        try {
+            int[] core = coreNumbers();
+            for(Integer id : indices){
+                if(core[id] >= k) {
+                    coreMatch.add(id);
+                }
             }
+        } finally {
+            selection.close();
+        }
+        return coreMatch;
+    }
+
+
+    /**
+     * Given a specific node id (seed) this method will return the number of
+     * "generations" necessary to reach a percentage (threshold) of the nodes
+     * in the graph when all the nodes in the k-core are removed
+     *
+     * @param seed      - the id of the seed page
+     * @param threshold - the percentage of nodes to reach
+     * @param k         - the lowest core number of the nodes to be removed
+     * @return the number of generations, or -1 if no node is removed, or 0
+     *         if the seed is removed
+     */
+    public int generationsCore(int seed, double threshold, int k) {
+        if(seed <= 0 || seed >= graph.nodeCount() || threshold < 0 || threshold > 1){
+            return -1;
+        }
+        Collection<Integer> nodesToRemove = coreNodes(k);
+
+        if(nodesToRemove.isEmpty()){
+            return -1;
+        } else if(coreNumbers()[seed] >= k){
+            return 0;
+        }
+        SpreadMetrics.Timer removal = SpreadMetrics.time(SpreadMetrics.Phase.REMOVAL);
+        try {
+            applyEdits(() -> {
+                for(Integer currentIndexToRemove : nodesToRemove) {
+                    int[] neighbors = graph.neighbors(currentIndexToRemove);
+                    for(Integer edge : neighbors){
+                        removeEdge(currentIndexToRemove, edge);
+                    }
+                }
+            });
+            SpreadMetrics.count(SpreadMetrics.Counter.NEIGHBORS_CALLS, nodesToRemove.size());
+        } finally {
+            removal.close();
+        }
+        return generations(seed, threshold);
+    }
+
+
+    /**
+     * Compute the basic reproduction number R0 when
+     * all the nodes in the k-core are removed
+     * R0 = tau * average_degree
+     *
+     * @param k - the lowest core number of the nodes to be removed
+     * @return the basic reproduction number
+     */
+    public double rNumberCore(int k) {
+        Collection<Integer> nodesToRemove = coreNodes(k);
+        SpreadMetrics.Timer removal = SpreadMetrics.time(SpreadMetrics.Phase.REMOVAL);
+        try {
+            applyEdits(() -> {
+                for(Integer currentIndexToRemove : nodesToRemove) {
+                    int[] neighbors = graph.neighbors(currentIndexToRemove);
+                    for(Integer edge : neighbors){
+                        removeEdge(currentIndexToRemove, edge);
+                    }
+                }
+            });
+            SpreadMetrics.count(SpreadMetrics.Counter.NEIGHBORS_CALLS, nodesToRemove.size());
+        } finally {
+            removal.close();
         }
         return rNumber();
     }
 
-}
\ No newline at end of file
+
+    // -- Spectral R0 after removals
+    /**
+     * Spectral R0 when all the nodes with a given degree d are removed as in
+     * rNumberDegree, warm-started from the eigenvector before the removal
+     *
+     * @param d - the degree of the nodes to be removed
+     * @return the spectral basic reproduction number
+     */
+    public double rNumberDegreeSpectral(int d) {
+        spectralRadius();
+        rNumberDegree(d);
+        return rNumberSpectral();
+    }
+
+
+    /**
+     * Spectral R0 when the nodes with a clustering coefficient within
+     * [low, high] are removed as in rNumberCC, warm-started from the
+     * eigenvector before the removal
+     *
+     * @param low  - the lower bound (inclusive) of the cc range
+     * @param high - the upper bound (inclusive) of the cc range
+     * @return the spectral basic reproduction number
+     */
+    public double rNumberCCSpectral(double low, double high) {
+        spectralRadius();
+        rNumberCC(low, high);
+        return rNumberSpectral();
+    }
+
+
+    /**
+     * Spectral R0 when the nodes with degree >= lowBoundDegree and a
+     * clustering coefficient <= upBoundCC are removed as in rNumberDegCC,
+     * warm-started from the eigenvector before the removal
+     *
+     * @param lowBoundDegree - the lower bound (inclusive) of the degree
+     * @param upBoundCC      - the upper bound (inclusive) of the cc
+     * @return the spectral basic reproduction number
+     */
+    public double rNumberDegCCSpectral(int lowBoundDegree, double upBoundCC) {
+        spectralRadius();
+        rNumberDegCC(lowBoundDegree, upBoundCC);
+        return rNumberSpectral();
+    }
+
+}
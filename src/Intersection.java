@@ -0,0 +1,149 @@
+/**
+ * Size of the intersection of two sorted neighbor lists without duplicates,
+ * the inner loop of clustering coefficients, common neighbors and triangle
+ * counts. Lists of similar length are merged, with the SIMD kernel when
+ * available; when one list is much longer than the other, every element of
+ * the short one is looked up in the long one by galloping (exponential then
+ * binary search), in O(s log(l / s)) instead of O(s + l).
+ *
+ * The SIMD kernel is VectorIntersection in src-vector, which uses the
+ * incubating Vector API. It is compiled separately with --add-modules
+ * jdk.incubator.vector and only loaded if that module is present at run
+ * time, so the rest of the code builds and runs without it. The system
+ * property spread.vector=false turns it off.
+ */
+public final class Intersection {
+
+    /**
+     * Length ratio above which the short list is galloped into the long one
+     */
+    public static final int GALLOP_RATIO = 32;
+
+    // Shorter lists are not worth a vector setup
+    private static final int VECTOR_MIN_LENGTH = 16;
+
+    /**
+     * An intersection counting kernel over a[aFrom .. aTo) and b[bFrom .. bTo)
+     */
+    interface Kernel {
+        int count(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo);
+    }
+
+    private static final Kernel VECTOR = loadVectorKernel();
+
+
+    private Intersection() {
+    }
+
+
+    private static Kernel loadVectorKernel() {
+        if (!Boolean.parseBoolean(System.getProperty("spread.vector", "true"))
+            || !ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            return null;
+        }
+        try {
+            return (Kernel) Class.forName("VectorIntersection").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+
+    /**
+     * @return true if the SIMD kernel is in use
+     */
+    public static boolean vectorized() {
+        return VECTOR != null;
+    }
+
+
+    /**
+     * @param a - a sorted list without duplicates
+     * @param b - another sorted list without duplicates
+     * @return the number of elements in both
+     */
+    public static int count(int[] a, int[] b) {
+        return count(a, 0, a.length, b, 0, b.length);
+    }
+
+
+    /**
+     * @param a     - a sorted list without duplicates
+     * @param aFrom - the first index of a to use
+     * @param aTo   - the index after the last one of a to use
+     * @param b     - another sorted list without duplicates
+     * @param bFrom - the first index of b to use
+     * @param bTo   - the index after the last one of b to use
+     * @return the number of elements in both ranges
+     */
+    public static int count(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo) {
+        int aLength = aTo - aFrom;
+        int bLength = bTo - bFrom;
+        if (aLength == 0 || bLength == 0) {
+            return 0;
+        }
+        if (aLength > bLength) {
+            return count(b, bFrom, bTo, a, aFrom, aTo);
+        }
+        if ((long) aLength * GALLOP_RATIO < bLength) {
+            return gallop(a, aFrom, aTo, b, bFrom, bTo);
+        }
+        if (VECTOR != null && aLength >= VECTOR_MIN_LENGTH) {
+            return VECTOR.count(a, aFrom, aTo, b, bFrom, bTo);
+        }
+        return merge(a, aFrom, aTo, b, bFrom, bTo);
+    }
+
+
+    /**
+     * Scalar merge, also used by the SIMD kernel for the tails
+     */
+    static int merge(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo) {
+        int i = aFrom;
+        int j = bFrom;
+        int count = 0;
+        while (i < aTo && j < bTo) {
+            int x = a[i];
+            int y = b[j];
+            // Branch-free advance, the comparisons are hard to predict
+            count += x == y ? 1 : 0;
+            i += x <= y ? 1 : 0;
+            j += y <= x ? 1 : 0;
+        }
+        return count;
+    }
+
+
+    /**
+     * Look up every element of the short list a in the long list b
+     */
+    static int gallop(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo) {
+        int count = 0;
+        int low = bFrom;
+        for (int i = aFrom; i < aTo && low < bTo; i++) {
+            int x = a[i];
+            // Double the step until b[low + step] >= x, then binary search
+            int step = 1;
+            int high = low;
+            while (high < bTo && b[high] < x) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            high = Math.min(high, bTo - 1);
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (b[mid] < x) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            if (low < bTo && b[low] == x) {
+                count++;
+                low++;
+            }
+        }
+        return count;
+    }
+}
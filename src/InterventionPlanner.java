@@ -0,0 +1,375 @@
+import java.util.Arrays;
+
+/**
+ * Evaluate node-removal interventions on the loaded graph without modifying
+ * it. A removal order is chosen by a strategy, then the basic reproduction
+ * number and the size of the giant component are computed after every
+ * removal in a single pass: R0 is updated as each node's remaining edges are
+ * dropped, and the component sizes come from adding the removed nodes back
+ * in reverse order with a union-find.
+ */
+public class InterventionPlanner {
+
+    /**
+     * How the nodes to remove are ranked
+     */
+    public enum Strategy {
+        /** highest degree first */
+        DEGREE,
+        /** lowest clustering coefficient first, ties broken by higher degree */
+        CLUSTERING,
+        /** highest sampled betweenness centrality first */
+        BETWEENNESS,
+        /** highest degree in the graph left by the previous removals first */
+        ADAPTIVE_DEGREE
+    }
+
+    /**
+     * Number of BFS sources sampled by the BETWEENNESS strategy
+     */
+    public static final int DEFAULT_BETWEENNESS_SAMPLES = 256;
+
+    private final int[][] adjacency;
+    private final double tau;
+    private final int n;
+
+
+    /**
+     * @param spread the loaded graph and transmissibility to work on
+     */
+    public InterventionPlanner(InformationSpread spread) {
+        this.adjacency = spread.adjacency();
+        this.tau = spread.tau();
+        this.n = adjacency.length - 1; // there is no node with id 0
+    }
+
+
+    /**
+     * Remove up to budget nodes ranked by a strategy
+     *
+     * @param strategy - the ranking of the nodes to remove
+     * @param budget   - the maximum number of nodes to remove
+     * @return R0 and giant component size after each removal
+     */
+    public Curve plan(Strategy strategy, int budget) {
+        return plan(removalOrder(strategy, budget));
+    }
+
+
+    /**
+     * Remove nodes in a given order
+     *
+     * @param order - the ids of the nodes to remove, first removed first
+     * @return R0 and giant component size after each removal
+     */
+    public Curve plan(int[] order) {
+        int k = order.length;
+        int[] removedAt = new int[n + 1];
+        Arrays.fill(removedAt, Integer.MAX_VALUE);
+        for (int i = 0; i < k; i++) {
+            int v = order[i];
+            if (v <= 0 || v > n) {
+                throw new IllegalArgumentException("node not in graph: " + v);
+            }
+            if (removedAt[v] != Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("node removed twice: " + v);
+            }
+            removedAt[v] = i;
+        }
+
+        double[] rNumber = new double[k + 1];
+        long totalDegree = 0;
+        for (int v = 1; v <= n; v++) {
+            totalDegree += adjacency[v].length;
+        }
+        rNumber[0] = tau * totalDegree / n;
+        for (int i = 0; i < k; i++) {
+            for (int w : adjacency[order[i]]) {
+                if (removedAt[w] > i) {
+                    totalDegree -= 2;
+                }
+            }
+            rNumber[i + 1] = tau * totalDegree / n;
+        }
+
+        // Components of the graph without any removed node, then add the
+        // removed nodes back from last to first
+        int[] parent = new int[n + 1];
+        int[] size = new int[n + 1];
+        for (int v = 1; v <= n; v++) {
+            parent[v] = v;
+            size[v] = 1;
+        }
+        int giant = 0;
+        for (int v = 1; v <= n; v++) {
+            if (removedAt[v] == Integer.MAX_VALUE) {
+                for (int w : adjacency[v]) {
+                    if (w > v && removedAt[w] == Integer.MAX_VALUE) {
+                        union(parent, size, v, w);
+                    }
+                }
+            }
+        }
+        for (int v = 1; v <= n; v++) {
+            if (removedAt[v] == Integer.MAX_VALUE) {
+                giant = Math.max(giant, size[find(parent, v)]);
+            }
+        }
+        int[] giantComponent = new int[k + 1];
+        giantComponent[k] = giant;
+        for (int i = k - 1; i >= 0; i--) {
+            int v = order[i];
+            for (int w : adjacency[v]) {
+                if (removedAt[w] > i) {
+                    union(parent, size, v, w);
+                }
+            }
+            giant = Math.max(giant, size[find(parent, v)]);
+            giantComponent[i] = giant;
+        }
+        return new Curve(order.clone(), rNumber, giantComponent, n);
+    }
+
+
+    /**
+     * Rank the nodes to remove
+     *
+     * @param strategy - the ranking to use
+     * @param budget   - the maximum number of nodes to return
+     * @return the ids of the first min(budget, n) nodes of the ranking
+     */
+    public int[] removalOrder(Strategy strategy, int budget) {
+        int k = Math.max(0, Math.min(budget, n));
+        switch (strategy) {
+            case DEGREE:
+                return topK(degrees(), null, k);
+            case CLUSTERING: {
+                double[] cc = clusteringCoefficients();
+                for (int v = 1; v <= n; v++) {
+                    cc[v] = -cc[v];
+                }
+                return topK(cc, degrees(), k);
+            }
+            case BETWEENNESS:
+                return topK(new Betweenness(adjacency).sampled(DEFAULT_BETWEENNESS_SAMPLES, 0), degrees(), k);
+            case ADAPTIVE_DEGREE:
+                return adaptiveDegreeOrder(k);
+            default:
+                throw new IllegalArgumentException("unknown strategy: " + strategy);
+        }
+    }
+
+
+    private double[] degrees() {
+        double[] degree = new double[n + 1];
+        for (int v = 1; v <= n; v++) {
+            degree[v] = adjacency[v].length;
+        }
+        return degree;
+    }
+
+
+    // The k nodes with the highest score, ties broken by the highest
+    // secondary score and then by the lowest id
+    private int[] topK(double[] score, double[] secondary, int k) {
+        Integer[] nodes = new Integer[n];
+        for (int v = 1; v <= n; v++) {
+            nodes[v - 1] = v;
+        }
+        Arrays.sort(nodes, (a, b) -> {
+            int cmp = Double.compare(score[b], score[a]);
+            if (cmp == 0 && secondary != null) {
+                cmp = Double.compare(secondary[b], secondary[a]);
+            }
+            return cmp != 0 ? cmp : Integer.compare(a, b);
+        });
+        int[] order = new int[k];
+        for (int i = 0; i < k; i++) {
+            order[i] = nodes[i];
+        }
+        return order;
+    }
+
+
+    // Clustering coefficient of every node from sorted neighbor intersections
+    private double[] clusteringCoefficients() {
+        double[] cc = new double[n + 1];
+        for (int u = 1; u <= n; u++) {
+            int[] nu = adjacency[u];
+            int degree = nu.length;
+            if (degree < 2) {
+                continue;
+            }
+            long connected = 0;
+            for (int v : nu) {
+                connected += Intersection.count(nu, adjacency[v]);
+            }
+            cc[u] = (double) connected / ((long) degree * (degree - 1));
+        }
+        return cc;
+    }
+
+
+    // Repeatedly remove the node of highest remaining degree, keeping the
+    // nodes in doubly linked buckets indexed by their current degree
+    private int[] adaptiveDegreeOrder(int k) {
+        int maxDegree = 0;
+        int[] degree = new int[n + 1];
+        for (int v = 1; v <= n; v++) {
+            degree[v] = adjacency[v].length;
+            maxDegree = Math.max(maxDegree, degree[v]);
+        }
+        int[] head = new int[maxDegree + 1];
+        int[] next = new int[n + 1];
+        int[] prev = new int[n + 1];
+        for (int v = n; v >= 1; v--) {
+            link(head, next, prev, v, degree[v]);
+        }
+
+        boolean[] removed = new boolean[n + 1];
+        int[] order = new int[k];
+        for (int i = 0; i < k; i++) {
+            while (head[maxDegree] == 0) {
+                maxDegree--;
+            }
+            int u = head[maxDegree];
+            unlink(head, next, prev, u, degree[u]);
+            removed[u] = true;
+            order[i] = u;
+            for (int w : adjacency[u]) {
+                if (!removed[w]) {
+                    unlink(head, next, prev, w, degree[w]);
+                    link(head, next, prev, w, --degree[w]);
+                }
+            }
+        }
+        return order;
+    }
+
+
+    // Node ids start at 1, so 0 marks the end of a bucket list
+    private static void link(int[] head, int[] next, int[] prev, int v, int bucket) {
+        next[v] = head[bucket];
+        prev[v] = 0;
+        if (head[bucket] != 0) {
+            prev[head[bucket]] = v;
+        }
+        head[bucket] = v;
+    }
+
+
+    private static void unlink(int[] head, int[] next, int[] prev, int v, int bucket) {
+        if (prev[v] != 0) {
+            next[prev[v]] = next[v];
+        } else {
+            head[bucket] = next[v];
+        }
+        if (next[v] != 0) {
+            prev[next[v]] = prev[v];
+        }
+    }
+
+
+    private static int find(int[] parent, int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+
+    private static void union(int[] parent, int[] size, int v, int w) {
+        int a = find(parent, v);
+        int b = find(parent, w);
+        if (a == b) {
+            return;
+        }
+        if (size[a] < size[b]) {
+            int tmp = a;
+            a = b;
+            b = tmp;
+        }
+        parent[b] = a;
+        size[a] += size[b];
+    }
+
+
+    /**
+     * The effect of an intervention. Index i of every array describes the
+     * graph after the first i nodes of the removal order are removed.
+     */
+    public static class Curve {
+        private final int[] removed;
+        private final double[] rNumber;
+        private final int[] giantComponent;
+        private final int nodeCount;
+
+
+        Curve(int[] removed, double[] rNumber, int[] giantComponent, int nodeCount) {
+            this.removed = removed;
+            this.rNumber = rNumber;
+            this.giantComponent = giantComponent;
+            this.nodeCount = nodeCount;
+        }
+
+
+        /**
+         * @return the number of nodes removed by the whole intervention
+         */
+        public int size() {
+            return removed.length;
+        }
+
+
+        /**
+         * @param i the position in the removal order
+         * @return the id of the i-th removed node
+         */
+        public int removed(int i) {
+            return removed[i];
+        }
+
+
+        /**
+         * @param i the number of nodes removed
+         * @return the basic reproduction number R0 after i removals
+         */
+        public double rNumber(int i) {
+            return rNumber[i];
+        }
+
+
+        /**
+         * @param i the number of nodes removed
+         * @return the number of nodes of the largest component after i removals
+         */
+        public int giantComponent(int i) {
+            return giantComponent[i];
+        }
+
+
+        /**
+         * @param i the number of nodes removed
+         * @return the fraction of the graph in the largest component after i removals
+         */
+        public double coverage(int i) {
+            return nodeCount == 0 ? 0 : (double) giantComponent[i] / nodeCount;
+        }
+
+
+        /**
+         * @param target the R0 to reach
+         * @return the fewest removals that bring R0 to at most target, or -1
+         *         if the intervention never does
+         */
+        public int removalsToReach(double target) {
+            for (int i = 0; i < rNumber.length; i++) {
+                if (rNumber[i] <= target) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+
+/**
+ * Writes degree, clustering coefficient, core number and spread level of
+ * every node to a file, for tools outside Java. The metrics are computed in
+ * one fused pass over chunks of CHUNK_ROWS nodes: the groups of 64 nodes of
+ * a chunk run in parallel, each computing all the metrics of its nodes, and
+ * a chunk is written before the next one is computed. Rows never become
+ * objects and the memory used beyond the graph's own snapshots does not
+ * grow with the number of nodes.
+ *
+ * The spread levels of a group come from one multi-source search for its 64
+ * nodes, see InformationSpread.spreadProfiles. They are the costly column;
+ * a threshold of NaN leaves them out and writes -1 instead.
+ *
+ * Two formats are written:
+ * - CSV, with a header line "node,degree,clustering,core,level" and the
+ *   clustering coefficient rounded to 6 decimals;
+ * - a binary columnar file, little-endian: the 8 ASCII bytes "SPRDMET1",
+ *   the number of rows (int), the number of columns (int, 5), the
+ *   threshold (double), then each column in full in the order node (int),
+ *   degree (int), clustering (double), core (int), level (int).
+ */
+public class MetricsExport {
+
+    /**
+     * Nodes computed and written at a time, a multiple of 64
+     */
+    public static final int CHUNK_ROWS = 1 << 12;
+
+    /**
+     * First bytes of the binary format
+     */
+    public static final String MAGIC = "SPRDMET1";
+
+    private static final int HEADER_BYTES = 8 + 4 + 4 + 8;
+    private static final int COLUMNS = 5;
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final InformationSpread spread;
+    private final double threshold;
+    private final int[][] adjacency;
+    private final int[] cores;
+    private final int n;
+
+    // The current chunk
+    private final int[] degree = new int[CHUNK_ROWS];
+    private final double[] clustering = new double[CHUNK_ROWS];
+    private final int[] level = new int[CHUNK_ROWS];
+
+
+    /**
+     * @param spread    - the loaded graph
+     * @param threshold - the percentage of nodes the spread level is
+     *                    computed for, as in generations; NaN for no levels
+     */
+    public MetricsExport(InformationSpread spread, double threshold) {
+        if (threshold < 0 || threshold > 1) {
+            throw new IllegalArgumentException("threshold must be in 0 .. 1: " + threshold);
+        }
+        this.spread = spread;
+        this.threshold = threshold;
+        this.adjacency = spread.adjacency();
+        this.cores = spread.coreNumbers();
+        this.n = adjacency.length - 1; // there is no node with id 0
+    }
+
+
+    /**
+     * @param path - the file to write
+     * @return the number of rows written
+     * @throws IOException if the file cannot be written
+     */
+    public long writeCsv(String path) throws IOException {
+        try (FileChannel channel = open(path)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            buffer.put("node,degree,clustering,core,level\n".getBytes(StandardCharsets.US_ASCII));
+            for (int first = 1; first <= n; first += CHUNK_ROWS) {
+                int rows = compute(first);
+                for (int i = 0; i < rows; i++) {
+                    // Longest row: 4 ints with sign, 8 chars of cc, commas
+                    if (buffer.remaining() < 64) {
+                        flush(channel, buffer);
+                    }
+                    putInt(buffer, first + i);
+                    buffer.put((byte) ',');
+                    putInt(buffer, degree[i]);
+                    buffer.put((byte) ',');
+                    putFraction(buffer, clustering[i]);
+                    buffer.put((byte) ',');
+                    putInt(buffer, cores[first + i]);
+                    buffer.put((byte) ',');
+                    putInt(buffer, level[i]);
+                    buffer.put((byte) '\n');
+                }
+            }
+            flush(channel, buffer);
+        }
+        return n;
+    }
+
+
+    /**
+     * @param path - the file to write
+     * @return the number of rows written
+     * @throws IOException if the file cannot be written
+     */
+    public long writeBinary(String path) throws IOException {
+        try (FileChannel channel = open(path)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put(MAGIC.getBytes(StandardCharsets.US_ASCII));
+            buffer.putInt(n);
+            buffer.putInt(COLUMNS);
+            buffer.putDouble(threshold);
+            write(channel, buffer, 0);
+
+            // Column offsets; every chunk writes its slice of each column
+            long node = HEADER_BYTES;
+            long degrees = node + 4L * n;
+            long coefficients = degrees + 4L * n;
+            long coreNumbers = coefficients + 8L * n;
+            long levels = coreNumbers + 4L * n;
+            for (int first = 1; first <= n; first += CHUNK_ROWS) {
+                int rows = compute(first);
+                long row = first - 1;
+                for (int i = 0; i < rows; i++) {
+                    buffer.putInt(first + i);
+                }
+                write(channel, buffer, node + 4 * row);
+                for (int i = 0; i < rows; i++) {
+                    buffer.putInt(degree[i]);
+                }
+                write(channel, buffer, degrees + 4 * row);
+                for (int i = 0; i < rows; i++) {
+                    buffer.putDouble(clustering[i]);
+                }
+                write(channel, buffer, coefficients + 8 * row);
+                for (int i = 0; i < rows; i++) {
+                    buffer.putInt(cores[first + i]);
+                }
+                write(channel, buffer, coreNumbers + 4 * row);
+                for (int i = 0; i < rows; i++) {
+                    buffer.putInt(level[i]);
+                }
+                write(channel, buffer, levels + 4 * row);
+            }
+        }
+        return n;
+    }
+
+
+    // Compute the metrics of nodes first .. first + CHUNK_ROWS - 1, return
+    // the number of nodes in the chunk
+    private int compute(int first) {
+        int rows = Math.min(CHUNK_ROWS, n - first + 1);
+        int groups = (rows + Long.SIZE - 1) / Long.SIZE;
+        IntStream.range(0, groups).parallel().forEach(g -> computeGroup(first, g * Long.SIZE,
+            Math.min(rows, (g + 1) * Long.SIZE)));
+        return rows;
+    }
+
+
+    private void computeGroup(int first, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int v = first + i;
+            int d = adjacency[v].length;
+            degree[i] = d;
+            // Same as clustCoeff
+            clustering[i] = d < 2 ? 0 : (double) InformationSpread.connectedness(adjacency, v) / (d * (d - 1));
+        }
+        if (Double.isNaN(threshold)) {
+            for (int i = from; i < to; i++) {
+                level[i] = -1;
+            }
+            return;
+        }
+        int[] seeds = new int[to - from];
+        for (int i = from; i < to; i++) {
+            seeds[i - from] = first + i;
+        }
+        int[][] profiles = new int[seeds.length][];
+        InformationSpread.multiSourceProfiles(adjacency, seeds, 0, seeds.length, profiles);
+        for (int i = from; i < to; i++) {
+            level[i] = spread.spreadLevel(profiles[i - from], threshold);
+        }
+    }
+
+
+    private static FileChannel open(String path) throws IOException {
+        return FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        buffer.clear();
+    }
+
+
+    private static void putInt(ByteBuffer buffer, int value) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int start = buffer.position();
+        do {
+            buffer.put((byte) ('0' + value % 10));
+            value /= 10;
+        } while (value != 0);
+        // The digits were written least significant first
+        for (int i = start, j = buffer.position() - 1; i < j; i++, j--) {
+            byte tmp = buffer.get(i);
+            buffer.put(i, buffer.get(j));
+            buffer.put(j, tmp);
+        }
+    }
+
+
+    // A value in 0 .. 1 with 6 decimals
+    private static void putFraction(ByteBuffer buffer, double value) {
+        long millionths = Math.round(value * 1_000_000);
+        putInt(buffer, (int) (millionths / 1_000_000));
+        buffer.put((byte) '.');
+        for (long scale = 100_000; scale > 0; scale /= 10) {
+            buffer.put((byte) ('0' + millionths / scale % 10));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache for query results computed on an InformationSpread graph.
+ * Every entry belongs to the graph version it was computed against, so a
+ * lookup with a newer version drops all cached results before answering.
+ */
+public class QueryCache {
+
+    private final int capacity;
+    private final LinkedHashMap<List<Object>, Object> entries;
+    private long version;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param capacity the maximum number of results kept, 0 disables caching
+     */
+    public QueryCache(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must be >= 0: " + capacity);
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<List<Object>, Object>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, Object> eldest) {
+                if (size() > QueryCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Look up the result of a query
+     *
+     * @param graphVersion the current version of the graph
+     * @param key the query name followed by its parameters
+     * @return the cached result or null if the query has not been cached
+     */
+    public synchronized Object get(long graphVersion, List<Object> key) {
+        sync(graphVersion);
+        Object value = entries.get(key);
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    /**
+     * Store the result of a query
+     *
+     * @param graphVersion the graph version the result was computed against
+     * @param key the query name followed by its parameters
+     * @param value the result, must not be mutated afterwards
+     */
+    public synchronized void put(long graphVersion, List<Object> key, Object value) {
+        sync(graphVersion);
+        if (capacity > 0 && graphVersion == version) {
+            entries.put(key, value);
+        }
+    }
+
+    /**
+     * Drop every cached result
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    // Results computed on an older graph are stale
+    private void sync(long graphVersion) {
+        if (graphVersion > version) {
+            entries.clear();
+            version = graphVersion;
+        }
+    }
+
+    /**
+     * @return the maximum number of results kept
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of results currently cached
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of lookups answered from the cache
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups that had to be computed
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of results dropped to stay within capacity
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the fraction of lookups answered from the cache
+     */
+    public synchronized double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "QueryCache[size=" + entries.size() + "/" + capacity + ", hits=" + hits
+            + ", misses=" + misses + ", evictions=" + evictions + "]";
+    }
+}
@@ -0,0 +1,207 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Largest eigenvalue of the adjacency matrix by power iteration. On graphs
+ * with a heavy-tailed degree distribution the epidemic threshold is
+ * 1 / lambda_max rather than 1 / average degree (Wang et al. 2003), so
+ * tau * lambda_max is a better R0 than tau * average degree.
+ *
+ * The adjacency is copied into compressed sparse rows once. Every iteration
+ * multiplies by A + I in parallel over blocks of rows with about the same
+ * number of edges, writing into a second preallocated vector, so iterations
+ * allocate no arrays. The shift by I keeps the dominant eigenvalue positive
+ * and unique on bipartite graphs, where A alone would have -lambda_max too.
+ */
+public class SpectralRadius {
+
+    /**
+     * Default convergence tolerance, relative to the eigenvalue
+     */
+    public static final double DEFAULT_TOLERANCE = 1e-9;
+
+    /**
+     * Default maximum number of iterations
+     */
+    public static final int DEFAULT_MAX_ITERATIONS = 10000;
+
+    private static final int BLOCKS_PER_THREAD = 4;
+
+    private final int n;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] blockStart;
+    private final double[] dotProducts;
+    private final double[] squares;
+    private final IntConsumer multiply = this::multiply;
+
+    private double[] x;
+    private double[] y;
+    private double eigenvalue;
+    private int iterations;
+
+
+    /**
+     * @param adjacency - the sorted neighbors of every node, as returned by
+     *                    InformationSpread.adjacency
+     */
+    public SpectralRadius(int[][] adjacency) {
+        n = adjacency.length;
+        offsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] = offsets[v] + adjacency[v].length;
+        }
+        targets = new int[offsets[n]];
+        for (int v = 0; v < n; v++) {
+            System.arraycopy(adjacency[v], 0, targets, offsets[v], adjacency[v].length);
+        }
+
+        // Rows split so that every block gets about the same number of edges
+        // plus nodes
+        int blocks = Math.max(1, Math.min(n, BLOCKS_PER_THREAD * Runtime.getRuntime().availableProcessors()));
+        blockStart = new int[blocks + 1];
+        long work = (long) targets.length + n;
+        for (int b = 1; b < blocks; b++) {
+            long goal = work * b / blocks;
+            int lo = blockStart[b - 1];
+            int hi = n;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if ((long) offsets[mid] + mid < goal) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            blockStart[b] = lo;
+        }
+        blockStart[blocks] = n;
+        dotProducts = new double[blocks];
+        squares = new double[blocks];
+        x = new double[n];
+        y = new double[n];
+    }
+
+
+    /**
+     * Run power iteration from a start vector until the eigenvalue changes
+     * by less than tolerance * lambda between two iterations
+     *
+     * @param start         - the start vector, e.g. the eigenvector of a
+     *                        similar graph; null to start from all ones
+     * @param tolerance     - the relative convergence tolerance
+     * @param maxIterations - the maximum number of iterations
+     * @return the largest eigenvalue
+     */
+    public double compute(double[] start, double tolerance, int maxIterations) {
+        iterations = 0;
+        if (n <= 1) {
+            eigenvalue = 0;
+            return 0;
+        }
+        if (start != null && start.length == n) {
+            // A little of every node, in case the start vector has no weight
+            // on the new dominant eigenvector
+            double norm = Math.sqrt(dot(start, start));
+            double floor = 1e-3 / Math.sqrt(n);
+            for (int v = 0; v < n; v++) {
+                x[v] = (norm > 0 ? Math.abs(start[v]) / norm : 0) + floor;
+            }
+        } else {
+            Arrays.fill(x, 1);
+        }
+        x[0] = 0; // there is no node with id 0
+        scale(x, 1 / Math.sqrt(dot(x, x)));
+
+        double previous = Double.NaN;
+        while (iterations < maxIterations) {
+            IntStream.range(0, dotProducts.length).parallel().forEach(multiply);
+            iterations++;
+            double rayleigh = 0;
+            double squared = 0;
+            for (int b = 0; b < dotProducts.length; b++) {
+                rayleigh += dotProducts[b];
+                squared += squares[b];
+            }
+            eigenvalue = rayleigh - 1; // x has norm 1, undo the shift
+            scale(y, 1 / Math.sqrt(squared));
+            double[] tmp = x;
+            x = y;
+            y = tmp;
+            if (Math.abs(eigenvalue - previous) <= tolerance * Math.max(1, eigenvalue)) {
+                break;
+            }
+            previous = eigenvalue;
+        }
+        SpreadMetrics.count(SpreadMetrics.Counter.EDGES_SCANNED, (long) iterations * targets.length);
+        return eigenvalue;
+    }
+
+
+    /**
+     * @return the largest eigenvalue, from all ones with the default settings
+     */
+    public double compute() {
+        return compute(null, DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS);
+    }
+
+
+    // y = (A + I) x on one block of rows, with the block's share of x.y and y.y
+    private void multiply(int block) {
+        double dot = 0;
+        double square = 0;
+        for (int v = blockStart[block], end = blockStart[block + 1]; v < end; v++) {
+            double sum = x[v];
+            for (int i = offsets[v], last = offsets[v + 1]; i < last; i++) {
+                sum += x[targets[i]];
+            }
+            y[v] = sum;
+            dot += x[v] * sum;
+            square += sum * sum;
+        }
+        dotProducts[block] = dot;
+        squares[block] = square;
+    }
+
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+
+    private static void scale(double[] a, double factor) {
+        for (int i = 0; i < a.length; i++) {
+            a[i] *= factor;
+        }
+    }
+
+
+    /**
+     * @return the largest eigenvalue found by the last compute
+     */
+    public double eigenvalue() {
+        return eigenvalue;
+    }
+
+
+    /**
+     * @return a copy of the unit eigenvector found by the last compute,
+     *         indexed by node id
+     */
+    public double[] eigenvector() {
+        return x.clone();
+    }
+
+
+    /**
+     * @return the number of iterations of the last compute
+     */
+    public int iterations() {
+        return iterations;
+    }
+}
@@ -0,0 +1,343 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.IntToLongFunction;
+import java.util.function.Supplier;
+
+/**
+ * Micro-benchmarks for the IInformationSpread queries on every Graph backend
+ * and dataset. Each benchmark is warmed up, then run for a fixed time while
+ * the latency of every operation and the bytes it allocated are recorded.
+ * Warmup and measurement each start from a freshly loaded graph, and
+ * operations that remove edges get a freshly loaded graph before each call,
+ * outside of the measured time. The query cache is disabled so every call
+ * does its full work.
+ *
+ * Usage: java SpreadBenchmark [--datasets a.mtx,b.mtx] [--backends GraphL,GraphM]
+ *        [--tau 0.5] [--warmup ms] [--measure ms] [--filter name]
+ *
+ * The same benchmarks run under JMH from the Maven module in benchmarks/,
+ * through operations().
+ */
+public class SpreadBenchmark {
+
+    /**
+     * The graph backends that can be benchmarked, by name
+     */
+    static final Map<String, Supplier<Graph>> BACKENDS = new LinkedHashMap<String, Supplier<Graph>>();
+
+    static {
+        BACKENDS.put("GraphL", GraphL::new);
+        BACKENDS.put("GraphM", GraphM::new);
+        BACKENDS.put("GraphC", GraphC::new);
+        BACKENDS.put("Versioned", VersionedGraph::new);
+    }
+
+    private static final String[] DEFAULT_DATASETS = {
+        "datasets/connected_test1.mtx", "datasets/disconnected.mtx",
+        "datasets/test_graph.mtx", "datasets/socfb-American75.mtx"
+    };
+
+    /**
+     * A benchmarked call. i counts the calls so that arguments can vary.
+     */
+    interface Operation {
+        void run(InformationSpread spread, int i);
+    }
+
+    private static class Benchmark {
+        final String name;
+        final boolean mutating;
+        final Operation operation;
+
+
+        Benchmark(String name, boolean mutating, Operation operation) {
+            this.name = name;
+            this.mutating = mutating;
+            this.operation = operation;
+        }
+    }
+
+    private static final PrintStream QUIET = new PrintStream(OutputStream.nullOutputStream());
+
+    private final String dataset;
+    private final double tau;
+    private final Supplier<Graph> backend;
+    private final com.sun.management.ThreadMXBean threads;
+    private int[] nodes;
+    // Keeps results alive so the JIT cannot drop the calls
+    private long sink;
+    // The graph operations() runs on
+    private InformationSpread current;
+
+
+    SpreadBenchmark(String dataset, double tau, Supplier<Graph> backend) {
+        this.dataset = dataset;
+        this.tau = tau;
+        this.backend = backend;
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        this.threads = bean instanceof com.sun.management.ThreadMXBean
+            ? (com.sun.management.ThreadMXBean) bean : null;
+    }
+
+
+    // Loading prints a summary line, which would flood the results
+    private InformationSpread load() {
+        InformationSpread spread = new InformationSpread(0, backend);
+        PrintStream out = System.out;
+        System.setOut(QUIET);
+        try {
+            spread.loadGraphFromDataSet(dataset, tau);
+        } finally {
+            System.setOut(out);
+        }
+        return spread;
+    }
+
+
+    // A fixed pseudo-random sequence of node ids to use as arguments
+    private int node(int i) {
+        return nodes[i % nodes.length];
+    }
+
+
+    private void pickNodes(InformationSpread spread) {
+        nodes = new int[64];
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = 1 + random.nextInt(spread.graph.nodeCount() - 1);
+        }
+    }
+
+
+    private List<Benchmark> benchmarks() {
+        List<Benchmark> list = new ArrayList<Benchmark>();
+        list.add(new Benchmark("loadGraphFromDataSet", false, (s, i) -> sink += load().graph.edgeCount()));
+        list.add(new Benchmark("getNeighbors", false, (s, i) -> sink += s.getNeighbors(node(i)).length));
+        list.add(new Benchmark("path", false, (s, i) -> sink += s.path(node(i), node(i + 1)).size()));
+        list.add(new Benchmark("generations", false, (s, i) -> sink += s.generations(node(i), 0.9)));
+        list.add(new Benchmark("clustCoeff", false, (s, i) -> sink += (long) (100 * s.clustCoeff(node(i)))));
+        list.add(new Benchmark("clustCoeffNodes", false, (s, i) -> sink += s.clustCoeffNodes(0.5, 1.0).size()));
+        list.add(new Benchmark("rNumber", false, (s, i) -> sink += (long) s.rNumber()));
+        list.add(new Benchmark("rNumberDegree", true, (s, i) -> sink += (long) s.rNumberDegree(5)));
+        list.add(new Benchmark("rNumberCC", true, (s, i) -> sink += (long) s.rNumberCC(0.5, 1.0)));
+        list.add(new Benchmark("rNumberDegCC", true, (s, i) -> sink += (long) s.rNumberDegCC(25, 0.75)));
+        return list;
+    }
+
+
+    /**
+     * Run one benchmark and print a result row
+     */
+    private void run(Benchmark benchmark, long warmupMillis, long measureMillis) {
+        measure(benchmark, warmupMillis, null);
+        Samples samples = new Samples();
+        long gcCount = gcCount();
+        long gcTime = gcTime();
+        long elapsed = measure(benchmark, measureMillis, samples);
+        gcCount = gcCount() - gcCount;
+        gcTime = gcTime() - gcTime;
+
+        long[] latencies = Arrays.copyOf(samples.latencies, samples.count);
+        Arrays.sort(latencies);
+        long allocated = samples.allocated;
+        int ops = latencies.length;
+        System.out.printf("%-22s %-9s %-32s %8d %12.2f %12.1f %12.1f %12.1f %12.1f %14s %6d %8d%n",
+            benchmark.name, backendName(), dataset, ops,
+            ops / (elapsed / 1e9),
+            percentile(latencies, 0.50) / 1e3, percentile(latencies, 0.90) / 1e3,
+            percentile(latencies, 0.99) / 1e3, latencies[ops - 1] / 1e3,
+            threads == null ? "n/a" : String.valueOf(allocated / ops),
+            gcCount, gcTime);
+    }
+
+
+    // Call the operation on a freshly loaded graph until the time budget is
+    // spent, at least once. Returns the measured time in nanoseconds, setup
+    // excluded.
+    private long measure(Benchmark benchmark, long millis, Samples samples) {
+        long budget = millis * 1_000_000L;
+        long measured = 0;
+        long thread = Thread.currentThread().getId();
+        InformationSpread spread = load();
+        for (int i = 0; measured < budget || i == 0; i++) {
+            if (benchmark.mutating && i > 0) {
+                spread = load();
+            }
+            long bytes = threads == null ? 0 : threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            benchmark.operation.run(spread, i);
+            long latency = System.nanoTime() - start;
+            bytes = threads == null ? 0 : threads.getThreadAllocatedBytes(thread) - bytes;
+            measured += latency;
+            if (samples != null) {
+                samples.add(latency, bytes);
+            }
+        }
+        return measured;
+    }
+
+
+    // Growable primitive storage, so that recording does not itself allocate
+    // an object per operation
+    private static class Samples {
+        long[] latencies = new long[1024];
+        int count;
+        long allocated;
+
+
+        void add(long latency, long bytes) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, 2 * count);
+            }
+            latencies[count++] = latency;
+            allocated += bytes;
+        }
+    }
+
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+
+
+    private String backendName() {
+        for (Map.Entry<String, Supplier<Graph>> entry : BACKENDS.entrySet()) {
+            if (entry.getValue() == backend) {
+                return entry.getKey();
+            }
+        }
+        return "?";
+    }
+
+
+    /**
+     * The benchmarks as JDK types, for the JMH suite in benchmarks/, whose
+     * classes are in a package and cannot name the classes here. Each
+     * function runs its benchmark once on the current graph, with the call
+     * number as argument, and returns a value to consume. The function
+     * "reload" replaces the current graph with a freshly loaded one.
+     *
+     * @param dataset - the dataset to load
+     * @param backend - the name of a backend in BACKENDS
+     * @param tau     - the threshold to load the dataset with
+     * @return the functions by benchmark name
+     */
+    public static Map<String, IntToLongFunction> operations(String dataset, String backend, double tau) {
+        Supplier<Graph> graph = BACKENDS.get(backend);
+        if (graph == null) {
+            throw new IllegalArgumentException("unknown backend: " + backend);
+        }
+        SpreadBenchmark bench = new SpreadBenchmark(dataset, tau, graph);
+        bench.current = bench.load();
+        bench.pickNodes(bench.current);
+        Map<String, IntToLongFunction> operations = new LinkedHashMap<String, IntToLongFunction>();
+        for (Benchmark benchmark : bench.benchmarks()) {
+            operations.put(benchmark.name, i -> {
+                benchmark.operation.run(bench.current, i);
+                return bench.sink;
+            });
+        }
+        operations.put("reload", i -> {
+            bench.current = bench.load();
+            return bench.current.graph.edgeCount();
+        });
+        return operations;
+    }
+
+
+    /**
+     * @param name - the name of a benchmark
+     * @return whether the benchmark removes edges, so that it needs a
+     *         freshly loaded graph before each call
+     */
+    public static boolean mutating(String name) {
+        for (Benchmark benchmark : new SpreadBenchmark(null, 0, null).benchmarks()) {
+            if (benchmark.name.equals(name)) {
+                return benchmark.mutating;
+            }
+        }
+        throw new IllegalArgumentException("unknown benchmark: " + name);
+    }
+
+
+    /**
+     * @param args see the class comment
+     */
+    public static void main(String[] args) {
+        String[] datasets = DEFAULT_DATASETS;
+        String[] backends = BACKENDS.keySet().toArray(new String[0]);
+        double tau = 0.5;
+        long warmup = 1000;
+        long measure = 2000;
+        String filter = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--datasets":
+                    datasets = args[i + 1].split(",");
+                    break;
+                case "--backends":
+                    backends = args[i + 1].split(",");
+                    break;
+                case "--tau":
+                    tau = Double.parseDouble(args[i + 1]);
+                    break;
+                case "--warmup":
+                    warmup = Long.parseLong(args[i + 1]);
+                    break;
+                case "--measure":
+                    measure = Long.parseLong(args[i + 1]);
+                    break;
+                case "--filter":
+                    filter = args[i + 1];
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option: " + args[i]);
+            }
+        }
+
+        System.out.printf("%-22s %-9s %-32s %8s %12s %12s %12s %12s %12s %14s %6s %8s%n",
+            "benchmark", "backend", "dataset", "ops", "ops/s", "p50 us", "p90 us", "p99 us", "max us",
+            "alloc B/op", "gc", "gc ms");
+        for (String dataset : datasets) {
+            for (String name : backends) {
+                Supplier<Graph> backend = BACKENDS.get(name);
+                if (backend == null) {
+                    throw new IllegalArgumentException("unknown backend: " + name);
+                }
+                SpreadBenchmark bench = new SpreadBenchmark(dataset, tau, backend);
+                bench.pickNodes(bench.load());
+                for (Benchmark benchmark : bench.benchmarks()) {
+                    if (filter == null || benchmark.name.contains(filter)) {
+                        bench.run(benchmark, warmup, measure);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,386 @@
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JVM-wide counters and phase timers for the spread queries and the Graph
+ * backends. Metrics are off by default; while off, counting is a single
+ * static field read and timing returns a shared no-op timer, so the
+ * instrumented code runs at full speed. Hot loops count into locals and
+ * report once per query; the Graph backends themselves are not
+ * instrumented, the queries count the calls they make to them.
+ *
+ * Typical use:
+ * <pre>
+ * SpreadMetrics.enable();
+ * SpreadMetrics.Snapshot before = SpreadMetrics.snapshot();
+ * spread.generationsCC(seed, 0.9, 0.5, 1.0);
+ * System.out.println(SpreadMetrics.snapshot().minus(before));
+ * </pre>
+ */
+public final class SpreadMetrics {
+
+    /**
+     * Work counted by the instrumented code
+     */
+    public enum Counter {
+        /** adjacency entries looked at by a traversal */
+        EDGES_SCANNED,
+        /** nodes taken off a traversal queue */
+        NODES_DEQUEUED,
+        /** calls to Graph.hasEdge made by the queries */
+        HAS_EDGE_CALLS,
+        /** calls to Graph.neighbors made by the queries */
+        NEIGHBORS_CALLS
+    }
+
+    /**
+     * Timed phases of the queries
+     */
+    public enum Phase {
+        /** reading a dataset into a graph */
+        LOAD,
+        /** selecting the nodes to remove by degree, cc or both */
+        SELECTION,
+        /** computing the clustering coefficient of a node */
+        CLUSTERING,
+        /** removing the edges of the selected nodes */
+        REMOVAL,
+        /** breadth-first search for spread levels or paths */
+        TRAVERSAL,
+        /** power iteration for the spectral radius */
+        SPECTRAL
+    }
+
+    private static volatile boolean enabled;
+    private static volatile boolean jfr;
+
+    private static final LongAdder[] COUNTERS = adders(Counter.values().length);
+    private static final LongAdder[] CALLS = adders(Phase.values().length);
+    private static final LongAdder[] NANOS = adders(Phase.values().length);
+    private static final LongAdder[] BYTES = adders(Phase.values().length);
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private static final Timer NOOP = new Timer(null);
+
+
+    private SpreadMetrics() {
+    }
+
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (threads.isThreadAllocatedMemorySupported()) {
+                return threads;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Start collecting metrics. This also turns on the JVM's per-thread
+     * allocation accounting, which the timers read.
+     */
+    public static void enable() {
+        if (THREADS != null) {
+            THREADS.setThreadAllocatedMemoryEnabled(true);
+        }
+        enabled = true;
+    }
+
+
+    /**
+     * Stop collecting metrics, the values collected so far are kept
+     */
+    public static void disable() {
+        enabled = false;
+    }
+
+
+    /**
+     * @return true iff metrics are being collected
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+
+    /**
+     * Also emit a JFR event for every timed phase. The events cost nothing
+     * more unless a JFR recording with spread.Phase enabled is running.
+     *
+     * @param on true to emit events
+     */
+    public static void emitJfrEvents(boolean on) {
+        jfr = on;
+    }
+
+
+    /**
+     * Add to a counter if metrics are enabled
+     *
+     * @param counter the counter
+     * @param amount  the amount to add
+     */
+    public static void count(Counter counter, long amount) {
+        if (enabled) {
+            COUNTERS[counter.ordinal()].add(amount);
+        }
+    }
+
+
+    /**
+     * Add one to a counter if metrics are enabled
+     *
+     * @param counter the counter
+     */
+    public static void count(Counter counter) {
+        if (enabled) {
+            COUNTERS[counter.ordinal()].increment();
+        }
+    }
+
+
+    /**
+     * Time a phase. Close the timer in a finally block:
+     * <pre>
+     * SpreadMetrics.Timer timer = SpreadMetrics.time(phase);
+     * try {
+     *     ...
+     * } finally {
+     *     timer.close();
+     * }
+     * </pre>
+     *
+     * @param phase the phase
+     * @return a timer that records the phase when closed
+     */
+    public static Timer time(Phase phase) {
+        return enabled ? new Timer(phase) : NOOP;
+    }
+
+
+    /**
+     * Zero every counter and timer
+     */
+    public static void reset() {
+        for (LongAdder[] adders : new LongAdder[][] {COUNTERS, CALLS, NANOS, BYTES}) {
+            for (LongAdder adder : adders) {
+                adder.reset();
+            }
+        }
+    }
+
+
+    /**
+     * @return the current value of every counter and timer
+     */
+    public static Snapshot snapshot() {
+        long[] counters = new long[COUNTERS.length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = COUNTERS[i].sum();
+        }
+        long[] calls = new long[CALLS.length];
+        long[] nanos = new long[NANOS.length];
+        long[] bytes = new long[BYTES.length];
+        for (int i = 0; i < calls.length; i++) {
+            calls[i] = CALLS[i].sum();
+            nanos[i] = NANOS[i].sum();
+            bytes[i] = BYTES[i].sum();
+        }
+        return new Snapshot(counters, calls, nanos, bytes);
+    }
+
+
+    // 0 while the JVM does not account allocations
+    private static long allocatedBytes() {
+        return THREADS == null ? 0 : Math.max(0, THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()));
+    }
+
+
+    /**
+     * Records the time and bytes allocated by the current thread between its
+     * creation and close
+     */
+    public static final class Timer implements AutoCloseable {
+        private final Phase phase;
+        private final long startNanos;
+        private final long startBytes;
+        private final PhaseEvent event;
+
+
+        private Timer(Phase phase) {
+            this.phase = phase;
+            if (phase == null) {
+                startNanos = 0;
+                startBytes = 0;
+                event = null;
+                return;
+            }
+            if (jfr) {
+                event = new PhaseEvent();
+                event.begin();
+            } else {
+                event = null;
+            }
+            startBytes = allocatedBytes();
+            startNanos = System.nanoTime();
+        }
+
+
+        @Override
+        public void close() {
+            if (phase == null) {
+                return;
+            }
+            long nanos = System.nanoTime() - startNanos;
+            long bytes = allocatedBytes() - startBytes;
+            int i = phase.ordinal();
+            CALLS[i].increment();
+            NANOS[i].add(nanos);
+            BYTES[i].add(bytes);
+            if (event != null && event.shouldCommit()) {
+                event.phase = phase.name();
+                event.allocatedBytes = bytes;
+                event.commit();
+            }
+        }
+    }
+
+
+    /**
+     * JFR event for one timed phase
+     */
+    @Name("spread.Phase")
+    @Label("Spread Query Phase")
+    @Category("InformationSpread")
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Allocated Bytes")
+        long allocatedBytes;
+    }
+
+
+    /**
+     * Immutable copy of the metrics at one point in time
+     */
+    public static final class Snapshot {
+        private final long[] counters;
+        private final long[] calls;
+        private final long[] nanos;
+        private final long[] bytes;
+
+
+        private Snapshot(long[] counters, long[] calls, long[] nanos, long[] bytes) {
+            this.counters = counters;
+            this.calls = calls;
+            this.nanos = nanos;
+            this.bytes = bytes;
+        }
+
+
+        /**
+         * @param counter the counter
+         * @return its value
+         */
+        public long get(Counter counter) {
+            return counters[counter.ordinal()];
+        }
+
+
+        /**
+         * @param phase the phase
+         * @return the number of times it was timed
+         */
+        public long calls(Phase phase) {
+            return calls[phase.ordinal()];
+        }
+
+
+        /**
+         * @param phase the phase
+         * @return the total time spent in it, in nanoseconds
+         */
+        public long nanos(Phase phase) {
+            return nanos[phase.ordinal()];
+        }
+
+
+        /**
+         * @param phase the phase
+         * @return the bytes allocated in it
+         */
+        public long allocatedBytes(Phase phase) {
+            return bytes[phase.ordinal()];
+        }
+
+
+        /**
+         * @param earlier a snapshot taken before this one
+         * @return the metrics collected between the two snapshots
+         */
+        public Snapshot minus(Snapshot earlier) {
+            return new Snapshot(subtract(counters, earlier.counters), subtract(calls, earlier.calls),
+                subtract(nanos, earlier.nanos), subtract(bytes, earlier.bytes));
+        }
+
+
+        private static long[] subtract(long[] a, long[] b) {
+            long[] result = new long[a.length];
+            for (int i = 0; i < a.length; i++) {
+                result[i] = a[i] - b[i];
+            }
+            return result;
+        }
+
+
+        /**
+         * @return the counters by name
+         */
+        public Map<Counter, Long> counters() {
+            Map<Counter, Long> map = new EnumMap<Counter, Long>(Counter.class);
+            for (Counter counter : Counter.values()) {
+                map.put(counter, counters[counter.ordinal()]);
+            }
+            return map;
+        }
+
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (Counter counter : Counter.values()) {
+                sb.append(counter).append('=').append(get(counter)).append(' ');
+            }
+            for (Phase phase : Phase.values()) {
+                if (calls(phase) > 0) {
+                    sb.append("\n  ").append(phase).append(": calls=").append(calls(phase))
+                        .append(" ms=").append(nanos(phase) / 1_000_000.0)
+                        .append(" allocated=").append(allocatedBytes(phase));
+                }
+            }
+            return sb.toString();
+        }
+    }
+}
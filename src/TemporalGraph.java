@@ -0,0 +1,369 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Timestamped contact graph with a sliding time window. Contacts must arrive
+ * in non-decreasing time order and are kept twice: in one global log, for
+ * queries that stream over all contacts, and in a time-sorted array per
+ * node. Expiring old contacts only moves the start of the log and, lazily,
+ * the start of each node's array, so sliding the window costs amortized O(1)
+ * per contact. Dead prefixes are compacted away when an array fills up.
+ *
+ * Spread follows time-respecting paths only: a node infected at time t can
+ * pass the infection on through contacts strictly after t. The seed counts as
+ * infected before the window starts.
+ */
+public class TemporalGraph {
+
+    /**
+     * Arrival time of nodes that are never reached
+     */
+    public static final long UNREACHED = Long.MAX_VALUE;
+
+    private final int n;
+    private final double tau;
+    private final long width;
+
+    // Global contact log, live between logHead and logSize
+    private int[] logFrom = new int[1024];
+    private int[] logTo = new int[1024];
+    private long[] logTime = new long[1024];
+    private int logHead;
+    private int logSize;
+
+    // Per-node contacts, live between head[v] and size[v]
+    private final int[][] contacts;
+    private final long[][] times;
+    private final int[] head;
+    private final int[] size;
+
+    private long windowStart = Long.MIN_VALUE;
+    private long latest = Long.MIN_VALUE;
+
+
+    /**
+     * @param nodes - the number of nodes, numbered 1 to nodes
+     * @param tau   - contacts with a lower weight are ignored
+     * @param width - the length of the window, contacts older than the
+     *                latest contact minus width expire; Long.MAX_VALUE keeps all
+     */
+    public TemporalGraph(int nodes, double tau, long width) {
+        if (width <= 0) {
+            throw new IllegalArgumentException("width must be > 0: " + width);
+        }
+        this.n = nodes;
+        this.tau = tau;
+        this.width = width;
+        contacts = new int[nodes + 1][];
+        times = new long[nodes + 1][];
+        head = new int[nodes + 1];
+        size = new int[nodes + 1];
+        for (int v = 0; v <= nodes; v++) {
+            contacts[v] = new int[2];
+            times[v] = new long[2];
+        }
+    }
+
+
+    /**
+     * Read a dataset in the .mtx format of loadGraphFromDataSet, where each
+     * line may have a fourth column with the time of the contact. Lines
+     * without one get their line number as time. Contacts are sorted by time
+     * before they are added.
+     *
+     * @param filePath the path of the data
+     * @param tau      the transmissibility, lighter contacts are ignored
+     * @param width    the length of the sliding window
+     * @return the temporal graph
+     * @throws IOException if the file cannot be read
+     */
+    public static TemporalGraph load(String filePath, double tau, long width) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+            String[] header = reader.readLine().split(" ");
+            int nodes = Integer.parseInt(header[0]);
+            int[] from = new int[16];
+            int[] to = new int[16];
+            double[] weight = new double[16];
+            long[] time = new long[16];
+            int count = 0;
+            boolean sorted = true;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (count == from.length) {
+                    from = Arrays.copyOf(from, 2 * count);
+                    to = Arrays.copyOf(to, 2 * count);
+                    weight = Arrays.copyOf(weight, 2 * count);
+                    time = Arrays.copyOf(time, 2 * count);
+                }
+                String[] data = line.split(" ");
+                from[count] = Integer.parseInt(data[0]);
+                to[count] = Integer.parseInt(data[1]);
+                weight[count] = Double.parseDouble(data[2]);
+                time[count] = data.length > 3 ? Long.parseLong(data[3]) : count;
+                sorted &= count == 0 || time[count] >= time[count - 1];
+                count++;
+            }
+
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            if (!sorted) {
+                long[] t = time;
+                Arrays.sort(order, (a, b) -> Long.compare(t[a], t[b]));
+            }
+            TemporalGraph graph = new TemporalGraph(nodes, tau, width);
+            for (int i : order) {
+                graph.addContact(from[i], to[i], time[i], weight[i]);
+            }
+            return graph;
+        }
+    }
+
+
+    /**
+     * Add a contact and expire the contacts that fall out of the window
+     *
+     * @param v      - one end of the contact
+     * @param w      - the other end of the contact
+     * @param time   - the time of the contact, not before the latest one
+     * @param weight - the weight of the contact, ignored if below tau
+     * @return true if the contact was kept
+     */
+    public boolean addContact(int v, int w, long time, double weight) {
+        if (v <= 0 || w <= 0 || v > n || w > n) {
+            throw new IllegalArgumentException("contact not in graph range: " + v + ", " + w);
+        }
+        if (time < latest) {
+            throw new IllegalArgumentException("contact at " + time + " is older than " + latest);
+        }
+        latest = time;
+        if (width != Long.MAX_VALUE && time - width + 1 > windowStart) {
+            expireBefore(time - width + 1);
+        }
+        if (weight < tau || v == w) {
+            return false;
+        }
+        if (logSize == logFrom.length) {
+            growLog();
+        }
+        logFrom[logSize] = v;
+        logTo[logSize] = w;
+        logTime[logSize] = time;
+        logSize++;
+        append(v, w, time);
+        append(w, v, time);
+        return true;
+    }
+
+
+    /**
+     * Drop every contact before a time
+     *
+     * @param time the new start of the window
+     */
+    public void expireBefore(long time) {
+        windowStart = Math.max(windowStart, time);
+        while (logHead < logSize && logTime[logHead] < windowStart) {
+            logHead++;
+        }
+    }
+
+
+    private void growLog() {
+        int live = logSize - logHead;
+        if (logHead > 0 && live <= logFrom.length / 2) {
+            System.arraycopy(logFrom, logHead, logFrom, 0, live);
+            System.arraycopy(logTo, logHead, logTo, 0, live);
+            System.arraycopy(logTime, logHead, logTime, 0, live);
+        } else {
+            logFrom = Arrays.copyOfRange(logFrom, logHead, 2 * logFrom.length + logHead);
+            logTo = Arrays.copyOfRange(logTo, logHead, 2 * logTo.length + logHead);
+            logTime = Arrays.copyOfRange(logTime, logHead, 2 * logTime.length + logHead);
+        }
+        logHead = 0;
+        logSize = live;
+    }
+
+
+    private void append(int v, int w, long time) {
+        if (size[v] == contacts[v].length) {
+            expire(v);
+            int live = size[v] - head[v];
+            if (head[v] > 0 && live <= contacts[v].length / 2) {
+                System.arraycopy(contacts[v], head[v], contacts[v], 0, live);
+                System.arraycopy(times[v], head[v], times[v], 0, live);
+            } else {
+                contacts[v] = Arrays.copyOfRange(contacts[v], head[v], 2 * contacts[v].length + head[v]);
+                times[v] = Arrays.copyOfRange(times[v], head[v], 2 * times[v].length + head[v]);
+            }
+            head[v] = 0;
+            size[v] = live;
+        }
+        contacts[v][size[v]] = w;
+        times[v][size[v]] = time;
+        size[v]++;
+    }
+
+
+    // Skip the contacts of v that left the window
+    private void expire(int v) {
+        long[] t = times[v];
+        int h = head[v];
+        while (h < size[v] && t[h] < windowStart) {
+            h++;
+        }
+        head[v] = h;
+    }
+
+
+    /**
+     * @return the number of nodes, numbered 1 to nodeCount()
+     */
+    public int nodeCount() {
+        return n;
+    }
+
+
+    /**
+     * @return the number of contacts in the window
+     */
+    public int contactCount() {
+        return logSize - logHead;
+    }
+
+
+    /**
+     * @param v the node
+     * @return the number of contacts of v in the window
+     */
+    public int degree(int v) {
+        expire(v);
+        return size[v] - head[v];
+    }
+
+
+    /**
+     * @param v the node
+     * @return the other ends of the contacts of v in the window, oldest first;
+     *         a node appears once per contact
+     */
+    public int[] contacts(int v) {
+        expire(v);
+        return Arrays.copyOfRange(contacts[v], head[v], size[v]);
+    }
+
+
+    /**
+     * @param v the node
+     * @return the times of the contacts of v in the window, oldest first
+     */
+    public long[] contactTimes(int v) {
+        expire(v);
+        return Arrays.copyOfRange(times[v], head[v], size[v]);
+    }
+
+
+    /**
+     * Earliest time each node can be reached from a seed over time-respecting
+     * paths in the window, in one pass over the contact log
+     *
+     * @param seed - the id of the seed node
+     * @return the arrival time of every node, UNREACHED if it is never reached;
+     *         the seed gets Long.MIN_VALUE
+     */
+    public long[] arrivalTimes(int seed) {
+        if (seed <= 0 || seed > n) {
+            throw new IllegalArgumentException("seed not in graph range: " + seed);
+        }
+        long[] arrival = new long[n + 1];
+        spread(seed, 2, arrival, null);
+        return arrival;
+    }
+
+
+    /**
+     * Time-respecting analogue of generations: the number of spread levels
+     * along the earliest-arrival paths needed to reach a percentage of nodes
+     *
+     * @param seed      - the id of the seed node
+     * @param threshold - the percentage of nodes to reach
+     * @return the number of spread levels, or -1 if the threshold is not
+     *         reached within the window or the seed is not in the graph
+     */
+    public int generations(int seed, double threshold) {
+        if (seed <= 0 || seed > n || threshold < 0 || threshold > 1) {
+            return -1;
+        }
+        int[] level = new int[n + 1];
+        long time = spread(seed, threshold, new long[n + 1], level);
+        return time == UNREACHED ? -1 : level[0];
+    }
+
+
+    /**
+     * @param seed      - the id of the seed node
+     * @param threshold - the percentage of nodes to reach
+     * @return the time of the contact that brings the reached nodes to
+     *         threshold percent, 0 if the seed alone does, or -1 if the
+     *         threshold is not reached within the window
+     */
+    public long timeToReach(int seed, double threshold) {
+        if (seed <= 0 || seed > n || threshold < 0 || threshold > 1) {
+            return -1;
+        }
+        long time = spread(seed, threshold, new long[n + 1], null);
+        return time == UNREACHED ? -1 : time;
+    }
+
+
+    // One pass over the live log in time order. A contact (u, v, t) infects v
+    // if u was infected strictly before t. Since contacts come in time order,
+    // nodes are reached in order of arrival time, so the pass can stop as soon
+    // as the threshold is met. Returns the time it was met, or UNREACHED; if
+    // level is given, level[v] is the hop count of v and level[0] the largest
+    // hop count among the nodes reached by then.
+    private long spread(int seed, double threshold, long[] arrival, int[] level) {
+        Arrays.fill(arrival, UNREACHED);
+        arrival[seed] = Long.MIN_VALUE;
+        int reached = 1;
+        int maxLevel = 0;
+        if ((double) reached / n >= threshold) {
+            return 0;
+        }
+        for (int i = logHead; i < logSize; i++) {
+            int a = logFrom[i];
+            int b = logTo[i];
+            long t = logTime[i];
+            int infected;
+            if (arrival[a] < t && arrival[b] == UNREACHED) {
+                infected = b;
+                arrival[b] = t;
+                if (level != null) {
+                    level[b] = level[a] + 1;
+                }
+            } else if (arrival[b] < t && arrival[a] == UNREACHED) {
+                infected = a;
+                arrival[a] = t;
+                if (level != null) {
+                    level[a] = level[b] + 1;
+                }
+            } else {
+                continue;
+            }
+            reached++;
+            if (level != null) {
+                maxLevel = Math.max(maxLevel, level[infected]);
+                level[0] = maxLevel;
+            }
+            if ((double) reached / n >= threshold) {
+                return t;
+            }
+        }
+        return UNREACHED;
+    }
+}
@@ -1,7 +1,16 @@
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.Assert.assertEquals;
 
@@ -40,4 +49,454 @@ public class TestInformationSpread {
         System.out.println(infoSpread.rNumberCC(0.5, 1.0));
     }
 
+    @Test
+    public void testQueryCache(){
+        InformationSpread infoSpread = new InformationSpread();
+        infoSpread.loadGraphFromDataSet("datasets/disconnected.mtx", 0.55);
+        int level = infoSpread.generations(1, 0.5);
+        assertEquals(level, infoSpread.generations(1, 0.5));
+        assertEquals(1, infoSpread.queryCache().hits());
+        // The first call misses both its result and the seed's spread profile
+        assertEquals(2, infoSpread.queryCache().misses());
+
+        infoSpread.removeEdge(1, 2);
+        // The component index answers the cut off seed without a profile
+        assertEquals(-1, infoSpread.generations(1, 0.5));
+        assertEquals(3, infoSpread.queryCache().misses());
+    }
+
+    @Test
+    public void testSpreadProfile(){
+        InformationSpread infoSpread = new InformationSpread();
+        infoSpread.loadGraphFromDataSet("datasets/disconnected.mtx", 0.55);
+        // Nodes reached by each level from node 1, whose component has 6
+        // of the 10 nodes
+        int[] profile = infoSpread.spreadProfile(1, false);
+        assertEquals(4, profile.length);
+        assertEquals(1, profile[0]);
+        assertEquals(2, profile[1]);
+        assertEquals(4, profile[2]);
+        assertEquals(6, profile[3]);
+        assertEquals(0, infoSpread.spreadLevel(profile, 0.1));
+        assertEquals(2, infoSpread.spreadLevel(profile, 0.3));
+        assertEquals(3, infoSpread.spreadLevel(profile, 0.6));
+        assertEquals(-1, infoSpread.spreadLevel(profile, 0.7));
+        assertEquals(0, infoSpread.generations(1, 0.1));
+        assertEquals(1, infoSpread.generations(1, 0.2));
+        assertEquals(2, infoSpread.generations(1, 0.25));
+        assertEquals(3, infoSpread.generations(1, 0.5));
+        assertEquals(3, infoSpread.generations(1, 0.6));
+        assertEquals(-1, infoSpread.generations(1, 0.7));
+    }
+
+    @Test
+    public void testInfluenceMaximization(){
+        InformationSpread infoSpread = new InformationSpread();
+        infoSpread.loadGraphFromDataSet("datasets/disconnected.mtx", 0.55);
+        InfluenceMaximization im = new InfluenceMaximization(infoSpread);
+        // nodes 1-6 and 7-10 form two components, the best pair seeds both
+        int[] celf = im.celf(2, 500, 7);
+        int[] imm = im.imm(2, 0.2, 7);
+        assertEquals(2, celf.length);
+        assertEquals(2, imm.length);
+        assertEquals(true, (celf[0] <= 6) != (celf[1] <= 6));
+        assertEquals(true, (imm[0] <= 6) != (imm[1] <= 6));
+    }
+
+    @Test
+    public void testInterventionPlanner(){
+        InformationSpread infoSpread = new InformationSpread();
+        infoSpread.loadGraphFromDataSet("datasets/disconnected.mtx", 0.55);
+        InterventionPlanner planner = new InterventionPlanner(infoSpread);
+        InterventionPlanner.Curve curve = planner.plan(InterventionPlanner.Strategy.ADAPTIVE_DEGREE, 4);
+        assertEquals(4, curve.size());
+        assertEquals(infoSpread.rNumber(), curve.rNumber(0), 0.0001);
+        assertEquals(6, curve.giantComponent(0));
+
+        for (int i = 0; i < 2; i++) {
+            int node = curve.removed(i);
+            for (int neighbor : infoSpread.getNeighbors(node)) {
+                infoSpread.removeEdge(node, neighbor);
+            }
+        }
+        assertEquals(infoSpread.rNumber(), curve.rNumber(2), 0.0001);
+    }
+
+    @Test
+    public void testComponentIndex(){
+        InformationSpread infoSpread = new InformationSpread();
+        infoSpread.loadGraphFromDataSet("datasets/disconnected.mtx", 0.55);
+        assertEquals(6, infoSpread.componentSize(1));
+        assertEquals(4, infoSpread.componentSize(9));
+        assertEquals(true, infoSpread.isReachable(1, 0.6));
+        assertEquals(false, infoSpread.isReachable(9, 0.6));
+        assertEquals(-1, infoSpread.generations(9, 0.6));
+        assertEquals(Arrays.asList(3), new ArrayList<Integer>(infoSpread.path(3, 7)));
+    }
+
+    @Test
+    public void testGraphGenerator() throws java.io.IOException {
+        GraphGenerator generator = GraphGenerator.erdosRenyi(500, 0.02, 11);
+        java.io.File file = java.io.File.createTempFile("erdos-renyi", ".mtx");
+        file.deleteOnExit();
+        generator.writeMtx(file.getPath());
+
+        InformationSpread fromFile = new InformationSpread();
+        InformationSpread streamed = new InformationSpread();
+        assertEquals(fromFile.loadGraphFromDataSet(file.getPath(), 0.5),
+            streamed.loadGraphFromGenerator(generator, 0.5));
+        assertEquals(fromFile.avgDegree(), streamed.avgDegree(), 0);
+        assertEquals(fromFile.generations(1, 0.5), streamed.generations(1, 0.5));
+
+        // In a sparse graph most skips between edges pass whole rows
+        long[] edges = new long[1];
+        GraphGenerator.erdosRenyi(100000, 1e-6, 7).generate((v, w, weight) -> edges[0]++);
+        double expected = 1e-6 * 100000L * 99999 / 2;
+        assertEquals(expected, edges[0], 0.05 * expected);
+    }
+
+    @Test
+    public void testSpreadMetrics(){
+        InformationSpread infoSpread = new InformationSpread(0);
+        infoSpread.loadGraphFromDataSet("datasets/disconnected.mtx", 0.55);
+        SpreadMetrics.enable();
+        try {
+            SpreadMetrics.Snapshot before = SpreadMetrics.snapshot();
+            infoSpread.generations(1, 1.0 / 3);
+            SpreadMetrics.Snapshot query = SpreadMetrics.snapshot().minus(before);
+            assertEquals(1, query.calls(SpreadMetrics.Phase.TRAVERSAL));
+            assertEquals(6, query.get(SpreadMetrics.Counter.NODES_DEQUEUED));
+            assertEquals(12, query.get(SpreadMetrics.Counter.EDGES_SCANNED));
+        } finally {
+            SpreadMetrics.disable();
+        }
+    }
+
+    @Test
+    public void testDynamicSpread(){
+        InformationSpread infoSpread = new InformationSpread();
+        infoSpread.loadGraphFromDataSet("datasets/disconnected.mtx", 0.55);
+        DynamicSpread dynamic = new DynamicSpread(infoSpread);
+        assertEquals(infoSpread.clustCoeff(8), dynamic.clustCoeff(8), 0);
+
+        dynamic.addEdge(1, 3, 100);
+        dynamic.removeEdge(8, 9);
+        for (int node = 1; node <= 10; node++) {
+            assertEquals(infoSpread.clustCoeff(node), dynamic.clustCoeff(node), 0);
+            assertEquals(infoSpread.degree(node), dynamic.degree(node));
+        }
+        assertEquals(infoSpread.rNumber(), dynamic.rNumber(), 0.0001);
+    }
+
+    @Test
+    public void testTemporalGraph(){
+        TemporalGraph temporal = new TemporalGraph(4, 0.5, 2);
+        temporal.addContact(1, 2, 1, 0.9);
+        temporal.addContact(3, 4, 1, 0.9);
+        temporal.addContact(2, 3, 2, 0.9);
+        temporal.addContact(1, 3, 2, 0.1);
+        assertEquals(3, temporal.contactCount());
+        assertEquals(1, temporal.generations(1, 0.5));
+        assertEquals(2, temporal.generations(1, 0.75));
+        assertEquals(-1, temporal.generations(1, 1.0));
+        assertEquals(2, temporal.timeToReach(1, 0.75));
+
+        temporal.addContact(1, 4, 3, 0.9);
+        assertEquals(2, temporal.contactCount());
+        assertEquals(1, temporal.degree(2));
+        long[] arrival = temporal.arrivalTimes(1);
+        assertEquals(3, arrival[4]);
+        assertEquals(TemporalGraph.UNREACHED, arrival[2]);
+    }
+
+    @Test
+    public void testBetweenness(){
+        InformationSpread infoSpread = new InformationSpread();
+        infoSpread.loadGraphFromDataSet("datasets/disconnected.mtx", 0.5);
+        Betweenness betweenness = new Betweenness(infoSpread);
+        double[] exact = betweenness.exact();
+        assertEquals(5.0, exact[2], 0.0001);
+        assertEquals(2.0, exact[3], 0.0001);
+        assertEquals(0.5, exact[8], 0.0001);
+        assertEquals(0.0, exact[1], 0.0001);
+        double[] sampled = betweenness.sampled(100, 7);
+        for (int node = 1; node <= 10; node++) {
+            assertEquals(exact[node], sampled[node], 0.0001);
+        }
+        assertEquals(2, Betweenness.top(exact, 1)[0]);
+        assertEquals(0.8, infoSpread.rNumberBetweenness(1, 10), 0.0001);
+    }
+
+    @Test
+    public void testCoreDecomposition(){
+        InformationSpread infoSpread = new InformationSpread();
+        infoSpread.loadGraphFromDataSet("datasets/disconnected.mtx", 0.5);
+        assertEquals(1, infoSpread.coreNumber(1));
+        assertEquals(2, infoSpread.coreNumber(2));
+        assertEquals(2, infoSpread.coreNumber(9));
+        assertEquals(-1, infoSpread.coreNumber(11));
+        assertEquals(9, infoSpread.coreNodes(2).size());
+        assertEquals(Arrays.toString(CoreDecomposition.sequential(infoSpread.adjacency())),
+            Arrays.toString(CoreDecomposition.parallel(infoSpread.adjacency())));
+        assertEquals(-1, infoSpread.generationsCore(1, 0.3, 3));
+        assertEquals(0, infoSpread.generationsCore(2, 0.3, 2));
+        assertEquals(0.0, infoSpread.rNumberCore(2), 0.0001);
+    }
+
+    @Test
+    public void testHyperANF(){
+        InformationSpread infoSpread = new InformationSpread();
+        infoSpread.loadGraphFromDataSet("datasets/disconnected.mtx", 0.5);
+        HyperANF anf = new HyperANF(infoSpread, 10, 0);
+        assertEquals(0.0325, anf.relativeStandardError(), 0.0001);
+        for (int node = 1; node <= 10; node++) {
+            assertEquals(infoSpread.generations(node, 0.5), anf.generations(node, 0.5));
+            int[] profile = infoSpread.spreadProfile(node, false);
+            for (int level = 0; level < profile.length; level++) {
+                assertEquals(profile[level], anf.estimate(node, level), 0.1 * profile[level]);
+            }
+        }
+        assertEquals(-1, anf.generations(7, 0.5));
+        assertEquals(6, anf.estimate(1, anf.levels()), 0.0001);
+    }
+
+    @Test
+    public void testSpectralRadius(){
+        InformationSpread infoSpread = new InformationSpread();
+        infoSpread.loadGraphFromDataSet("datasets/connected_test1.mtx", 0.5);
+        assertEquals(3.0, infoSpread.spectralRadius(), 0.0001);
+        assertEquals(1.5, infoSpread.rNumberSpectral(), 0.0001);
+        assertEquals(0.0, infoSpread.rNumberDegreeSpectral(3), 0.0001);
+
+        infoSpread.loadGraphFromDataSet("datasets/disconnected.mtx", 0.5);
+        assertEquals((1 + Math.sqrt(17)) / 2, infoSpread.spectralRadius(), 0.0001);
+        SpectralRadius power = new SpectralRadius(infoSpread.adjacency());
+        double cold = power.compute();
+        int coldIterations = power.iterations();
+        power.compute(power.eigenvector(), SpectralRadius.DEFAULT_TOLERANCE, SpectralRadius.DEFAULT_MAX_ITERATIONS);
+        assertEquals(cold, power.eigenvalue(), 0.0001);
+        assertEquals(true, power.iterations() < coldIterations);
+    }
+
+    @Test
+    public void testGraphC(){
+        InformationSpread list = new InformationSpread();
+        list.loadGraphFromDataSet("datasets/disconnected.mtx", 0.5);
+        InformationSpread compressed = new InformationSpread(1024, GraphC::new);
+        compressed.loadGraphFromDataSet("datasets/disconnected.mtx", 0.5);
+        assertEquals(list.graph.edgeCount(), compressed.graph.edgeCount());
+        for (int node = 0; node < list.graph.nodeCount(); node++) {
+            assertEquals(Arrays.toString(list.graph.neighbors(node)),
+                Arrays.toString(compressed.graph.neighbors(node)));
+        }
+        assertEquals(list.generations(1, 0.5), compressed.generations(1, 0.5));
+        assertEquals(list.rNumberDegree(3), compressed.rNumberDegree(3), 0.0001);
+
+        GraphC graph = new GraphC();
+        graph.init(5);
+        graph.addEdge(1, 2, 50);
+        graph.addEdge(1, 4, 100);
+        graph.addEdge(1, 2, 70);
+        assertEquals("[2, 4]", Arrays.toString(graph.neighbors(1)));
+        assertEquals(70, graph.weight(1, 2));
+        graph.removeEdge(1, 2);
+        assertEquals(false, graph.hasEdge(1, 2));
+        assertEquals(1, graph.edgeCount());
+        graph.addEdge(1, 2, 5);
+        assertEquals(5, graph.weight(1, 2));
+
+        // Edges that were not loaded go to the overflow
+        graph.addEdge(1, 3, 30);
+        graph.addEdge(1, 0, 10);
+        assertEquals("[0, 2, 3, 4]", Arrays.toString(graph.neighbors(1)));
+        assertEquals(30, graph.weight(1, 3));
+        assertEquals(4, graph.edgeCount());
+        graph.removeEdge(1, 3);
+        assertEquals("[0, 2, 4]", Arrays.toString(graph.neighbors(1)));
+        assertEquals(3, graph.edgeCount());
+
+        compressed.addEdge(2, 9, 80);
+        list.addEdge(2, 9, 80);
+        assertEquals(list.clustCoeff(2), compressed.clustCoeff(2), 0.0001);
+        assertEquals(list.generations(9, 0.5), compressed.generations(9, 0.5));
+    }
+
+    @Test
+    public void testIntersection(){
+        int[] small = {3, 40, 41, 99};
+        int[] large = new int[200];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = 2 * i + 1;
+        }
+        assertEquals(3, Intersection.count(small, large));
+        assertEquals(3, Intersection.count(large, small));
+        assertEquals(3, Intersection.gallop(small, 0, small.length, large, 0, large.length));
+        assertEquals(3, Intersection.merge(small, 0, small.length, large, 0, large.length));
+        assertEquals(100, Intersection.count(large, 0, 150, large, 50, 200));
+
+        InformationSpread infoSpread = new InformationSpread();
+        infoSpread.loadGraphFromDataSet("datasets/disconnected.mtx", 0.5);
+        assertEquals(2, infoSpread.triangles(8));
+        assertEquals(0, infoSpread.triangles(2));
+        assertEquals(2, infoSpread.commonNeighbors(7, 9));
+        assertEquals(2.0 / 3, infoSpread.clustCoeff(8), 0.0001);
+    }
+
+    @Test
+    public void testVersionedGraph(){
+        InformationSpread infoSpread = new InformationSpread(1024, VersionedGraph::new);
+        infoSpread.loadGraphFromDataSet("datasets/disconnected.mtx", 0.5);
+        VersionedGraph graph = (VersionedGraph) infoSpread.graph;
+        VersionedGraph.Snapshot before = graph.snapshot();
+        InformationSpread fork = infoSpread.fork();
+
+        assertEquals(0.3, infoSpread.rNumberDegree(3), 0.0001);
+        VersionedGraph.Snapshot after = graph.snapshot();
+        assertEquals(true, before.hasEdge(2, 1));
+        assertEquals(false, after.hasEdge(2, 1));
+        assertEquals(22, before.edgeCount());
+        assertEquals(after.version(), before.version() + 1);
+
+        assertEquals(22, fork.graph.edgeCount());
+        assertEquals(3, fork.generations(1, 0.5));
+        fork.removeEdge(4, 5);
+        assertEquals(false, fork.graph.hasEdge(4, 5));
+        assertEquals(true, graph.hasEdge(4, 5));
+
+        graph.batch(g -> {
+            g.addEdge(1, 3, 100);
+            g.addEdge(3, 1, 100);
+        });
+        assertEquals(after.version() + 1, graph.snapshot().version());
+        assertEquals(100, graph.weight(3, 1));
+
+        // Both directions of an edge are published as one snapshot
+        infoSpread.addEdge(2, 9, 50);
+        assertEquals(after.version() + 2, graph.snapshot().version());
+        assertEquals(50, graph.snapshot().weight(9, 2));
+    }
+
+    @Test
+    public void testAsyncSpread(){
+        InformationSpread infoSpread = new InformationSpread();
+        infoSpread.loadGraphFromDataSet("datasets/disconnected.mtx", 0.5);
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        AsyncSpread async = new AsyncSpread(infoSpread, tasks::add);
+
+        CompletableFuture<Integer> first = async.generations(1, 0.5);
+        CompletableFuture<Integer> again = async.generations(1, 0.5);
+        CompletableFuture<Integer> other = async.generations(7, 0.3);
+        CompletableFuture<Collection<Integer>> path = async.path(1, 5);
+        CompletableFuture<Double> cc = async.clustCoeff(8);
+        assertEquals(true, first == again);
+        assertEquals(1, async.coalesced());
+        assertEquals(1, tasks.size());
+        assertEquals(false, first.isDone());
+
+        tasks.get(0).run();
+        assertEquals(1, async.batches());
+        assertEquals(infoSpread.generations(1, 0.5), (int) first.join());
+        assertEquals(infoSpread.generations(7, 0.3), (int) other.join());
+        assertEquals(infoSpread.path(1, 5), new ArrayList<Integer>(path.join()));
+        assertEquals(2.0 / 3, cc.join(), 0.0001);
+
+        int[][] profiles = infoSpread.spreadProfiles(new int[] {1, 7, 1, 0});
+        assertEquals(true, Arrays.equals(infoSpread.spreadProfile(1, false), profiles[0]));
+        assertEquals(true, Arrays.equals(infoSpread.spreadProfile(7, false), profiles[1]));
+        assertEquals(true, Arrays.equals(profiles[0], profiles[2]));
+        assertEquals(0, profiles[3].length);
+    }
+
+    @Test
+    public void testWeightedSpread(){
+        InformationSpread infoSpread = new InformationSpread();
+        infoSpread.loadGraphFromDataSet("datasets/disconnected.mtx", 0.5);
+        WeightedSpread strength = new WeightedSpread(infoSpread, WeightedSpread.Transmission.STRENGTH);
+        WeightedSpread delay = new WeightedSpread(infoSpread, WeightedSpread.Transmission.DELAY);
+
+        // Every weight is 1.0, so one hop takes 1 unit by strength and 100 by delay
+        assertEquals(infoSpread.generations(1, 0.5), strength.timeToReach(1, 0.5));
+        assertEquals(100 * infoSpread.generations(1, 0.5), delay.timeToReach(1, 0.5));
+        assertEquals(-1, strength.timeToReach(1, 0.9));
+        assertEquals(-1, strength.timeToReach(0, 0.5));
+        assertEquals(0, strength.timeToReach(1, 0));
+
+        int[] times = strength.arrivalTimes(1);
+        assertEquals(0, times[1]);
+        assertEquals(1, times[2]);
+        assertEquals(-1, times[7]);
+
+        // A slow direct edge loses to a fast detour
+        infoSpread.addEdge(1, 5, 1);
+        times = new WeightedSpread(infoSpread, WeightedSpread.Transmission.DELAY).arrivalTimes(1);
+        assertEquals(1, times[5]);
+        times = new WeightedSpread(infoSpread, WeightedSpread.Transmission.STRENGTH).arrivalTimes(1);
+        assertEquals(3, times[5]);
+    }
+
+    @Test
+    public void testMetricsExport() throws IOException {
+        InformationSpread infoSpread = new InformationSpread();
+        infoSpread.loadGraphFromDataSet("datasets/disconnected.mtx", 0.5);
+        MetricsExport export = new MetricsExport(infoSpread, 0.5);
+
+        File csv = File.createTempFile("metrics", ".csv");
+        csv.deleteOnExit();
+        assertEquals(10, export.writeCsv(csv.getPath()));
+        List<String> lines = Files.readAllLines(csv.toPath());
+        assertEquals(11, lines.size());
+        assertEquals("node,degree,clustering,core,level", lines.get(0));
+        assertEquals("1,1,0.000000,1,3", lines.get(1));
+        assertEquals("8,3,0.666667,2,-1", lines.get(8));
+
+        File binary = File.createTempFile("metrics", ".bin");
+        binary.deleteOnExit();
+        export.writeBinary(binary.getPath());
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(binary.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(24 + 10 * (4 + 4 + 8 + 4 + 4), data.limit());
+        assertEquals(10, data.getInt(8));
+        assertEquals(5, data.getInt(12));
+        assertEquals(3, data.getInt(24 + 4 * 10 + 4 * 7)); // degree of node 8
+        assertEquals(infoSpread.clustCoeff(8), data.getDouble(24 + 8 * 10 + 8 * 7), 0);
+        assertEquals(-1, data.getInt(24 + 20 * 10 + 4 * 7)); // level of node 8
+    }
+
+    @Test
+    public void testGraphRegistry() throws IOException {
+        File spill = Files.createTempDirectory("spill").toFile();
+        GraphRegistry registry = new GraphRegistry(1, 0.5, GraphL::new, spill.getPath());
+        registry.register("disconnected", "datasets/disconnected.mtx");
+        registry.register("sample", "datasets/sample_graph.mtx");
+        registry.register("test", "datasets/test_graph.mtx");
+
+        InformationSpread direct = new InformationSpread();
+        direct.loadGraphFromDataSet("datasets/disconnected.mtx", 0.5);
+        Map<String, Double> r0 = registry.rNumbers();
+        assertEquals(Arrays.asList("disconnected", "sample", "test"), new ArrayList<String>(r0.keySet()));
+        assertEquals(direct.rNumber(), r0.get("disconnected"), 0);
+        // No graph fits in 1 byte, so each is loaded alone and evicted once released
+        assertEquals(3, registry.loads());
+        assertEquals(3, registry.evictions());
+
+        InformationSpread spread = registry.acquire("disconnected");
+        spread.removeEdge(1, 2);
+        double changed = spread.rNumber();
+        registry.release("disconnected");
+        registry.query(Arrays.asList("sample", "test"), InformationSpread::avgDegree);
+        assertEquals(false, registry.isResident("disconnected"));
+        // The change was spilled with the graph
+        assertEquals(changed, registry.rNumbers().get("disconnected"), 0);
+        assertEquals(true, registry.spills() > 0);
+
+        // Without a spill directory changes persist too, evicted or not
+        for (long budget : new long[] {1, 1L << 30}) {
+            GraphRegistry unspilled = new GraphRegistry(budget, 0.5, GraphL::new, null);
+            unspilled.register("disconnected", "datasets/disconnected.mtx");
+            unspilled.register("sample", "datasets/sample_graph.mtx");
+            double removed = unspilled.query(Arrays.asList("disconnected"), s -> s.rNumberDegree(3))
+                .get("disconnected");
+            assertEquals(removed, unspilled.rNumbers().get("disconnected"), 0);
+        }
+    }
+
 }
@@ -0,0 +1,454 @@
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Graph backend made of immutable snapshots. Nodes are grouped in blocks of
+ * 64; a snapshot is an array of blocks, and a block holds the sorted
+ * neighbor and weight arrays of its nodes. A write copies the block array,
+ * the blocks it touches and the neighbor arrays it changes, and shares
+ * everything else with the previous snapshot, then publishes the new
+ * snapshot with a single volatile write.
+ *
+ * Readers call snapshot() and keep the result for as long as they like: it
+ * never changes, needs no locking and is never torn, however many writes
+ * happen meanwhile. Writers are serialized. Every write publishes a
+ * snapshot; batch() applies many edits and publishes once, copying each
+ * touched block only once. The Graph read methods of this class go to the
+ * latest snapshot, so a long query should take one snapshot and run on it.
+ */
+public class VersionedGraph
+    implements Graph
+{
+    private static final int BLOCK_BITS = 6;
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+    private static final int[] EMPTY = new int[0];
+
+    private volatile Snapshot current;
+
+    // Writer state, guarded by this: the snapshot being built and which of
+    // its blocks were copied by the current edit and may be changed in place
+    private Block[] draft;
+    private boolean draftOwned;
+    private int[]   ownedEdit;
+    private int     edit;
+    private int     draftEdges;
+    private int     batchDepth;
+
+
+    /**
+     * Empty no argument constructor
+     */
+    VersionedGraph()
+    {
+        // init must be called before use
+    }
+
+
+    /**
+     * Start from an existing snapshot, sharing all of its storage; later
+     * writes to either graph are not seen by the other
+     *
+     * @param snapshot the snapshot to start from
+     */
+    public VersionedGraph(Snapshot snapshot)
+    {
+        publishFrom(snapshot);
+    }
+
+
+    /**
+     * @param graph - any graph
+     * @return a versioned copy of it
+     */
+    public static VersionedGraph copyOf(Graph graph)
+    {
+        VersionedGraph copy = new VersionedGraph();
+        copy.init(graph.nodeCount());
+        copy.batch(g -> {
+            for (int v = 0; v < graph.nodeCount(); v++)
+            {
+                for (int w : graph.neighbors(v))
+                    g.addEdge(v, w, graph.weight(v, w));
+            }
+        });
+        return copy;
+    }
+
+
+    private synchronized void publishFrom(Snapshot snapshot)
+    {
+        current = snapshot;
+        draft = snapshot.blocks;
+        draftOwned = false;
+        draftEdges = snapshot.edges;
+        ownedEdit = new int[snapshot.blocks.length];
+        edit = 1;
+    }
+
+
+    /**
+     * @return the latest published snapshot
+     */
+    public Snapshot snapshot()
+    {
+        return current;
+    }
+
+
+    // Initialize the graph with n vertices
+    public void init(int n)
+    {
+        Block[] blocks = new Block[(n + BLOCK_SIZE - 1) >>> BLOCK_BITS];
+        Block empty = new Block();
+        Arrays.fill(blocks, empty);
+        long version = current == null ? 0 : current.version + 1;
+        publishFrom(new Snapshot(blocks, n, 0, version));
+    }
+
+
+    /**
+     * Apply many edits and publish them as one snapshot. Inside the batch,
+     * call addEdge and removeEdge on the graph passed to edits; readers keep
+     * seeing the previous snapshot until the batch ends.
+     *
+     * @param edits the edits to apply
+     */
+    public synchronized void batch(Consumer<VersionedGraph> edits)
+    {
+        batchDepth++;
+        try
+        {
+            edits.accept(this);
+        }
+        finally
+        {
+            batchDepth--;
+        }
+        publish();
+    }
+
+
+    /**
+     * Remove every edge of some nodes, in both directions, as one snapshot
+     *
+     * @param nodes the nodes to disconnect
+     */
+    public void removeNodes(Iterable<Integer> nodes)
+    {
+        batch(g -> {
+            for (int v : nodes)
+            {
+                for (int w : g.draftNeighbors(v))
+                {
+                    g.removeEdge(v, w);
+                    g.removeEdge(w, v);
+                }
+            }
+        });
+    }
+
+
+    // Adds a new edge from node v to node w with weight wgt
+    public synchronized void addEdge(int v, int w, int wgt)
+    {
+        if (wgt == 0)
+            return; // Can't store weight of 0
+        Block block = editable(v);
+        int slot = v & (BLOCK_SIZE - 1);
+        int[] ids = block.ids[slot];
+        int i = Arrays.binarySearch(ids, w);
+        if (i >= 0)
+        {
+            int[] weights = block.weights[slot].clone();
+            weights[i] = wgt;
+            block.weights[slot] = weights;
+        }
+        else
+        {
+            i = -i - 1;
+            block.ids[slot] = insert(ids, i, w);
+            block.weights[slot] = insert(block.weights[slot], i, wgt);
+            draftEdges++;
+        }
+        publish();
+    }
+
+
+    // Removes the edge from the graph.
+    public synchronized void removeEdge(int v, int w)
+    {
+        int slot = v & (BLOCK_SIZE - 1);
+        int i = Arrays.binarySearch(draft[v >>> BLOCK_BITS].ids[slot], w);
+        if (i < 0)
+            return;
+        Block block = editable(v);
+        block.ids[slot] = delete(block.ids[slot], i);
+        block.weights[slot] = delete(block.weights[slot], i);
+        draftEdges--;
+        publish();
+    }
+
+
+    // Set the value of node with index v
+    public synchronized void setValue(int v, Object val)
+    {
+        editable(v).values[v & (BLOCK_SIZE - 1)] = val;
+        publish();
+    }
+
+
+    // The neighbors of v in the snapshot being built
+    private int[] draftNeighbors(int v)
+    {
+        return draft[v >>> BLOCK_BITS].ids[v & (BLOCK_SIZE - 1)];
+    }
+
+
+    // The block of v in the draft, copied first unless this edit already did
+    private Block editable(int v)
+    {
+        if (!draftOwned)
+        {
+            draft = draft.clone();
+            draftOwned = true;
+        }
+        int b = v >>> BLOCK_BITS;
+        if (ownedEdit[b] != edit)
+        {
+            draft[b] = draft[b].copy();
+            ownedEdit[b] = edit;
+        }
+        return draft[b];
+    }
+
+
+    // Publish the draft unless inside a batch; the next edit copies again
+    private void publish()
+    {
+        if (batchDepth > 0 || !draftOwned)
+            return;
+        Snapshot last = current;
+        current = new Snapshot(draft, last.nodes, draftEdges, last.version + 1);
+        draftOwned = false;
+        if (++edit == 0)
+        {
+            Arrays.fill(ownedEdit, 0);
+            edit = 1;
+        }
+    }
+
+
+    private static int[] insert(int[] array, int i, int value)
+    {
+        int[] result = new int[array.length + 1];
+        System.arraycopy(array, 0, result, 0, i);
+        result[i] = value;
+        System.arraycopy(array, i, result, i + 1, array.length - i);
+        return result;
+    }
+
+
+    private static int[] delete(int[] array, int i)
+    {
+        if (array.length == 1)
+            return EMPTY;
+        int[] result = new int[array.length - 1];
+        System.arraycopy(array, 0, result, 0, i);
+        System.arraycopy(array, i + 1, result, i, array.length - i - 1);
+        return result;
+    }
+
+
+    // Return the number of vertices
+    public int nodeCount()
+    {
+        return current.nodeCount();
+    }
+
+
+    // Return the current number of edges
+    public int edgeCount()
+    {
+        return current.edgeCount();
+    }
+
+
+    // Get the value of node with index v
+    public Object getValue(int v)
+    {
+        return current.getValue(v);
+    }
+
+
+    // Get the weight value for an edge
+    public int weight(int v, int w)
+    {
+        return current.weight(v, w);
+    }
+
+
+    // Returns true iff the graph has the edge
+    public boolean hasEdge(int v, int w)
+    {
+        return current.hasEdge(v, w);
+    }
+
+
+    // Returns an array containing the indicies of the neighbors of v
+    public int[] neighbors(int v)
+    {
+        return current.neighbors(v);
+    }
+
+
+    /**
+     * Neighbor and weight arrays of 64 consecutive nodes. Shared between
+     * snapshots and never changed once published; the arrays it points to
+     * are never changed at all.
+     */
+    private static final class Block
+    {
+        final int[][]  ids;
+        final int[][]  weights;
+        final Object[] values;
+
+
+        Block()
+        {
+            ids = new int[BLOCK_SIZE][];
+            weights = new int[BLOCK_SIZE][];
+            values = new Object[BLOCK_SIZE];
+            Arrays.fill(ids, EMPTY);
+            Arrays.fill(weights, EMPTY);
+        }
+
+
+        Block(Block other)
+        {
+            ids = other.ids.clone();
+            weights = other.weights.clone();
+            values = other.values.clone();
+        }
+
+
+        Block copy()
+        {
+            return new Block(this);
+        }
+    }
+
+
+    /**
+     * Immutable state of the graph at one version. Safe to read from any
+     * number of threads; the write methods throw UnsupportedOperationException.
+     */
+    public static final class Snapshot
+        implements Graph
+    {
+        private final Block[] blocks;
+        private final int     nodes;
+        private final int     edges;
+        private final long    version;
+
+
+        private Snapshot(Block[] blocks, int nodes, int edges, long version)
+        {
+            this.blocks = blocks;
+            this.nodes = nodes;
+            this.edges = edges;
+            this.version = version;
+        }
+
+
+        /**
+         * @return the number of writes published before this snapshot
+         */
+        public long version()
+        {
+            return version;
+        }
+
+
+        /**
+         * @param v the node
+         * @return the number of neighbors of v
+         */
+        public int degree(int v)
+        {
+            return blocks[v >>> BLOCK_BITS].ids[v & (BLOCK_SIZE - 1)].length;
+        }
+
+
+        // Snapshots are immutable
+        public void init(int n)
+        {
+            throw new UnsupportedOperationException("snapshots are immutable");
+        }
+
+
+        // Return the number of vertices
+        public int nodeCount()
+        {
+            return nodes;
+        }
+
+
+        // Return the current number of edges
+        public int edgeCount()
+        {
+            return edges;
+        }
+
+
+        // Get the value of node with index v
+        public Object getValue(int v)
+        {
+            return blocks[v >>> BLOCK_BITS].values[v & (BLOCK_SIZE - 1)];
+        }
+
+
+        // Snapshots are immutable
+        public void setValue(int v, Object val)
+        {
+            throw new UnsupportedOperationException("snapshots are immutable");
+        }
+
+
+        // Snapshots are immutable
+        public void addEdge(int v, int w, int wgt)
+        {
+            throw new UnsupportedOperationException("snapshots are immutable");
+        }
+
+
+        // Get the weight value for an edge
+        public int weight(int v, int w)
+        {
+            Block block = blocks[v >>> BLOCK_BITS];
+            int slot = v & (BLOCK_SIZE - 1);
+            int i = Arrays.binarySearch(block.ids[slot], w);
+            return i < 0 ? 0 : block.weights[slot][i];
+        }
+
+
+        // Snapshots are immutable
+        public void removeEdge(int v, int w)
+        {
+            throw new UnsupportedOperationException("snapshots are immutable");
+        }
+
+
+        // Returns true iff the graph has the edge
+        public boolean hasEdge(int v, int w)
+        {
+            return weight(v, w) != 0;
+        }
+
+
+        // Returns an array containing the indicies of the neighbors of v
+        public int[] neighbors(int v)
+        {
+            return blocks[v >>> BLOCK_BITS].ids[v & (BLOCK_SIZE - 1)].clone();
+        }
+    }
+}
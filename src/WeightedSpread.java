@@ -0,0 +1,229 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Spread over the loaded graph in time rather than in hops: an edge takes a
+ * number of time units set by its weight, and a node is reached when the
+ * first of its neighbors transmits to it. generations counts hops and
+ * ignores the weights.
+ *
+ * The weights are the small integers loadGraphFromDataSet stores (weight *
+ * 100, so 1 to 100), so arrival times come from Dial's algorithm instead of
+ * a heap: a ring of C + 1 buckets, C being the largest delay, holds every
+ * queued node in the bucket of its arrival time modulo C + 1, and the ring
+ * is scanned once in time order. A search costs O(n + m + T) for a last
+ * arrival at time T. Threshold queries stop as soon as enough nodes have
+ * been reached.
+ */
+public class WeightedSpread {
+
+    /**
+     * How an edge weight turns into a transmission delay
+     */
+    public enum Transmission {
+        /** the weight is the delay */
+        DELAY,
+        /** the weight is the strength, MAX_STRENGTH transmits in one time
+         *  unit and 1 in MAX_STRENGTH units */
+        STRENGTH
+    }
+
+    /**
+     * Largest weight loadGraphFromDataSet stores, a weight of 1.0
+     */
+    public static final int MAX_STRENGTH = 100;
+
+    private final int n;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] delays;
+    private final int maxDelay;
+    private final int[] componentSize;
+
+
+    /**
+     * @param spread       - the loaded graph
+     * @param transmission - how edge weights turn into delays
+     */
+    public WeightedSpread(InformationSpread spread, Transmission transmission) {
+        int[][] adjacency = spread.adjacency();
+        int[][] weights = spread.weights();
+        this.n = adjacency.length - 1; // there is no node with id 0
+        offsets = new int[n + 2];
+        for (int v = 0; v <= n; v++) {
+            offsets[v + 1] = offsets[v] + adjacency[v].length;
+        }
+        targets = new int[offsets[n + 1]];
+        delays = new int[targets.length];
+        int max = 1;
+        for (int v = 0; v <= n; v++) {
+            System.arraycopy(adjacency[v], 0, targets, offsets[v], adjacency[v].length);
+            for (int j = 0; j < weights[v].length; j++) {
+                int weight = weights[v][j];
+                int delay = transmission == Transmission.DELAY ? weight : MAX_STRENGTH + 1 - weight;
+                if (delay <= 0) {
+                    throw new IllegalArgumentException("weight " + weight + " of edge (" + v + ", "
+                        + adjacency[v][j] + ") does not give a positive delay");
+                }
+                delays[offsets[v] + j] = delay;
+                max = Math.max(max, delay);
+            }
+        }
+        maxDelay = max;
+
+        ComponentIndex components = spread.componentIndex();
+        componentSize = new int[n + 1];
+        for (int v = 1; v <= n; v++) {
+            componentSize[v] = components.size(v);
+        }
+    }
+
+
+    /**
+     * @param seed - the id of the seed node
+     * @return the time every node is reached at, indexed by node id: 0 for
+     *         the seed and -1 for nodes that are never reached
+     */
+    public int[] arrivalTimes(int seed) {
+        if (seed <= 0 || seed > n) {
+            throw new IllegalArgumentException("seed not in graph range: " + seed);
+        }
+        int[] time = new int[n + 1];
+        search(seed, time, n);
+        for (int v = 0; v <= n; v++) {
+            if (time[v] < -1) {
+                time[v] = -1;
+            }
+        }
+        return time;
+    }
+
+
+    /**
+     * Weighted counterpart of InformationSpread.generations
+     *
+     * @param seed      - the id of the seed node
+     * @param threshold - the percentage of nodes to reach
+     * @return the time at which threshold percent of the nodes have been
+     *         reached, or -1 if that never happens or the seed is not in the
+     *         graph
+     */
+    public int timeToReach(int seed, double threshold) {
+        if (seed <= 0 || seed > n || threshold < 0 || threshold > 1) {
+            return -1;
+        }
+        if (threshold == 0) {
+            return 0;
+        }
+        // The fewest nodes that make up threshold percent, the same
+        // comparison as spreadLevel
+        int count = (int) Math.ceil(threshold * n);
+        while (count > 1 && ((double) (count - 1) / n) >= threshold) {
+            count--;
+        }
+        while (((double) count / n) < threshold) {
+            count++;
+        }
+        if (count > componentSize[seed]) {
+            return -1;
+        }
+        return search(seed, new int[n + 1], count);
+    }
+
+
+    /**
+     * @param threshold - the percentage of nodes to reach
+     * @return timeToReach of every node, indexed by node id, computed in
+     *         parallel
+     */
+    public int[] timeToReachAll(double threshold) {
+        int[] times = new int[n + 1];
+        times[0] = -1;
+        IntStream.rangeClosed(1, n).parallel().forEach(v -> times[v] = timeToReach(v, threshold));
+        return times;
+    }
+
+
+    // Dial's algorithm from seed until limit nodes have arrived. On return
+    // time[v] is the arrival time of v if it has arrived, -(t + 2) if it was
+    // queued with tentative time t, and -1 if it was never seen. Returns the
+    // arrival time of the last node that arrived.
+    private int search(int seed, int[] time, int limit) {
+        SpreadMetrics.Timer traversal = SpreadMetrics.time(SpreadMetrics.Phase.TRAVERSAL);
+        try {
+            int buckets = maxDelay + 1;
+            int[] head = new int[buckets];
+            int[] next = new int[n + 1];
+            int[] prev = new int[n + 1];
+            Arrays.fill(head, -1);
+            Arrays.fill(time, -1);
+
+            time[seed] = -2;
+            link(head, next, prev, seed, 0);
+            int queued = 1;
+            int arrived = 0;
+            int now = 0;
+            int bucket = 0;
+            long scanned = 0;
+            while (queued > 0) {
+                while (head[bucket] == -1) {
+                    now++;
+                    bucket = bucket + 1 == buckets ? 0 : bucket + 1;
+                }
+                int v = head[bucket];
+                unlink(head, next, prev, v, bucket);
+                queued--;
+                time[v] = now;
+                if (++arrived >= limit) {
+                    break;
+                }
+                int end = offsets[v + 1];
+                scanned += end - offsets[v];
+                for (int i = offsets[v]; i < end; i++) {
+                    int w = targets[i];
+                    int old = time[w];
+                    if (old >= 0) {
+                        continue; // already arrived
+                    }
+                    int t = now + delays[i];
+                    if (old == -1) {
+                        queued++;
+                    } else if (t < -old - 2) {
+                        unlink(head, next, prev, w, (-old - 2) % buckets);
+                    } else {
+                        continue;
+                    }
+                    time[w] = -t - 2;
+                    link(head, next, prev, w, t % buckets);
+                }
+            }
+            SpreadMetrics.count(SpreadMetrics.Counter.NODES_DEQUEUED, arrived);
+            SpreadMetrics.count(SpreadMetrics.Counter.EDGES_SCANNED, scanned);
+            return now;
+        } finally {
+            traversal.close();
+        }
+    }
+
+
+    private static void link(int[] head, int[] next, int[] prev, int v, int bucket) {
+        next[v] = head[bucket];
+        prev[v] = -1;
+        if (head[bucket] != -1) {
+            prev[head[bucket]] = v;
+        }
+        head[bucket] = v;
+    }
+
+
+    private static void unlink(int[] head, int[] next, int[] prev, int v, int bucket) {
+        if (prev[v] == -1) {
+            head[bucket] = next[v];
+        } else {
+            next[prev[v]] = next[v];
+        }
+        if (next[v] != -1) {
+            prev[next[v]] = prev[v];
+        }
+    }
+}